@@ -0,0 +1,127 @@
+package org.grill.servlinker.client;
+
+import lombok.Getter;
+import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.option.KeyBinding;
+import net.minecraft.client.util.InputUtil;
+import org.grill.servlinker.client.utils.ActionInput;
+import org.grill.servlinker.networking.ActionsS2CPacket;
+import org.grill.servlinker.networking.InputEvent;
+import org.lwjgl.glfw.GLFW;
+
+import java.util.List;
+
+/**
+ * A fixed pool of "Server Action" key bindings under {@code category.servlinker}, assigned in order to the
+ * actions a server declares. Key bindings cannot be added once the game has started, hence the pool.
+ * <p>
+ * A slot the player bound uses their key on every server. For a slot left unbound, the server's default key is
+ * polled directly while connected; it never becomes the binding's key, so it is neither saved to the options file
+ * nor taken from another control. Defaults already bound to another control are not used.
+ */
+public final class ActionBindings implements ActionInput {
+    private final KeyBinding[] pool = new KeyBinding[ActionsS2CPacket.MAX_ACTIONS];
+    private final int[] defaultKeys = new int[ActionsS2CPacket.MAX_ACTIONS]; // GLFW key code, or -1 for none usable
+    private final boolean[] down = new boolean[ActionsS2CPacket.MAX_ACTIONS];
+    @Getter private List<String> names = List.of(); // by action id
+
+    public ActionBindings() {
+        for (int slot = 0; slot < pool.length; slot++) {
+            pool[slot] = KeyBindingHelper.registerKeyBinding(new KeyBinding(
+                    "key.servlinker.action." + (slot + 1), InputUtil.Type.KEYSYM, GLFW.GLFW_KEY_UNKNOWN, "category.servlinker"));
+        }
+        java.util.Arrays.fill(defaultKeys, -1);
+    }
+
+    /** Translation key of whatever triggers the action: the player's binding, else the server default in use. */
+    public String keyTranslationKey(int actionId) {
+        if (pool[actionId].isUnbound() && defaultKeys[actionId] >= 0) {
+            return InputUtil.Type.KEYSYM.createFromCode(defaultKeys[actionId]).getTranslationKey();
+        }
+        return pool[actionId].getBoundKeyTranslationKey();
+    }
+
+    public void assign(ActionsS2CPacket packet) {
+        clear();
+        int count = Math.min(Math.min(packet.names().size(), packet.defaultKeys().size()), pool.length);
+        for (int slot = 0; slot < count; slot++) {
+            int defaultKey = packet.defaultKeys().get(slot);
+            if (defaultKey >= 0 && defaultKey <= GLFW.GLFW_KEY_LAST && !isTaken(defaultKey, slot)) {
+                defaultKeys[slot] = defaultKey;
+            }
+            while (pool[slot].wasPressed()) {
+                // Presses from before the action existed
+            }
+        }
+        names = List.copyOf(packet.names().subList(0, count));
+        if (packet.names().size() > count) {
+            ServlinkerClient.LOGGER.warn("Server declared {} actions, only the first {} can be bound", packet.names().size(), count);
+        }
+    }
+
+    // Bound to any control, or the default of an earlier action
+    private boolean isTaken(int keyCode, int slot) {
+        String translationKey = InputUtil.Type.KEYSYM.createFromCode(keyCode).getTranslationKey();
+        for (KeyBinding binding : MinecraftClient.getInstance().options.allKeys) {
+            if (translationKey.equals(binding.getBoundKeyTranslationKey())) {
+                return true;
+            }
+        }
+        for (int earlier = 0; earlier < slot; earlier++) {
+            if (defaultKeys[earlier] == keyCode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Unassigns every action and forgets the server's default keys. */
+    public void clear() {
+        java.util.Arrays.fill(defaultKeys, -1);
+        java.util.Arrays.fill(down, false);
+        names = List.of();
+    }
+
+    private boolean isPressed(int actionId) {
+        KeyBinding binding = pool[actionId];
+        if (binding.isUnbound()) {
+            int defaultKey = defaultKeys[actionId];
+            return defaultKey >= 0 && InputUtil.isKeyPressed(MinecraftClient.getInstance().getWindow().getHandle(), defaultKey);
+        }
+        return binding.isPressed();
+    }
+
+    @Override
+    public void poll(Listener listener, long nowNanos) {
+        for (int actionId = 0; actionId < names.size(); actionId++) {
+            KeyBinding binding = pool[actionId];
+            int presses = 0;
+            while (binding.wasPressed()) {
+                presses++;
+            }
+            boolean pressed = isPressed(actionId);
+            if (pressed != down[actionId]) {
+                down[actionId] = pressed;
+                listener.onAction(pressed ? InputEvent.Action.PRESS : InputEvent.Action.RELEASE, actionId, nowNanos);
+            } else if (!pressed && presses > 0) {
+                // Pressed and released between two ticks
+                listener.onAction(InputEvent.Action.PRESS, actionId, nowNanos);
+                listener.onAction(InputEvent.Action.RELEASE, actionId, nowNanos);
+            }
+        }
+    }
+
+    @Override
+    public void releaseAll(Listener listener, long nowNanos) {
+        for (int actionId = 0; actionId < names.size(); actionId++) {
+            while (pool[actionId].wasPressed()) {
+                // Discarded, these happened while capture could not send them
+            }
+            if (down[actionId]) {
+                down[actionId] = false;
+                listener.onAction(InputEvent.Action.RELEASE, actionId, nowNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.grill.servlinker.client;
+
+import org.grill.servlinker.client.utils.CaptureMetrics;
+import org.grill.servlinker.client.utils.InputCapture;
+import org.grill.servlinker.client.utils.SuspendReason;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.utils.LatencyHistograms;
+import org.grill.servlinker.utils.NanoHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Renders {@link CaptureMetrics} as text lines for the F3 overlay and {@code /servlinker stats}. */
+public final class CaptureStats {
+    private CaptureStats() {}
+
+    public static List<String> lines(InputCapture capture) {
+        CaptureMetrics metrics = capture.getMetrics();
+        List<String> lines = new ArrayList<>(7);
+        lines.add(String.format(Locale.ROOT, "ServLinker: %s, %s%s%s, %s",
+                status(capture), capture.getWireFormat(),
+                capture.isBatching() ? "+batch" : "", capture.isRateLimited() ? "+budget" : "", capture.getCaptureMode()));
+        lines.add(String.format(Locale.ROOT, "Input events: %d (%.1f/s) key %d, seq %d, mouse %d, motion %d, scroll %d",
+                metrics.getEvents(), metrics.perSecond(metrics.getEvents()),
+                metrics.getEvents(InputEvent.Kind.KEY), metrics.getEvents(InputEvent.Kind.SEQUENCE),
+                metrics.getEvents(InputEvent.Kind.MOUSE_BUTTON), metrics.getEvents(InputEvent.Kind.MOTION),
+                metrics.getEvents(InputEvent.Kind.SCROLL)));
+        lines.add(String.format(Locale.ROOT, "Input packets: %d (%.1f/s), %s (%s/s)",
+                metrics.getPackets(), metrics.perSecond(metrics.getPackets()),
+                formatBytes(metrics.getBytes()), formatBytes((long) metrics.perSecond(metrics.getBytes()))));
+        lines.add(String.format(Locale.ROOT, "Input dropped: %d, coalesced: %d", metrics.getDropped(), metrics.getCoalesced()));
+        lines.add(String.format(Locale.ROOT, "Capture tick: p50 %s, p99 %s",
+                NanoHistogram.format(metrics.tickPercentileNanos(0.50)), NanoHistogram.format(metrics.tickPercentileNanos(0.99))));
+        lines.add(String.format(Locale.ROOT, "Sequences: %d active, %d broken",
+                capture.getActiveSequences(), capture.getBrokenSequences()));
+        LatencyHistograms latency = capture.getLatency().getHistograms();
+        lines.add(String.format(Locale.ROOT, "Input latency p99: capture %s, network %s, dispatch %s",
+                NanoHistogram.format(latency.get(LatencyHistograms.Stage.CAPTURE_TO_SEND).percentile(0.99)),
+                NanoHistogram.format(latency.get(LatencyHistograms.Stage.SEND_TO_RECEIVE).percentile(0.99)),
+                NanoHistogram.format(latency.get(LatencyHistograms.Stage.RECEIVE_TO_DISPATCH).percentile(0.99))));
+        return lines;
+    }
+
+    private static String status(InputCapture capture) {
+        if (!capture.isCapturing()) return "paused";
+        SuspendReason reason = capture.getSuspendReason();
+        return reason == SuspendReason.NONE ? "capturing" : "suspended (" + reason.name().toLowerCase(Locale.ROOT) + ")";
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024.0);
+        return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,115 @@
+package org.grill.servlinker.client;
+
+import com.mojang.brigadier.arguments.DoubleArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.text.Text;
+import org.grill.servlinker.client.journal.InputJournal;
+import org.grill.servlinker.client.journal.JournalManager;
+import org.grill.servlinker.client.journal.JournalReplay;
+import org.grill.servlinker.client.utils.InputCapture;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class ClientCommands {
+    public static void register(InputCapture inputCapture) {
+        ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> dispatcher.register(
+                ClientCommandManager.literal("servlinker")
+                        .then(ClientCommandManager.literal("stats").executes(context -> {
+                            for (String line : CaptureStats.lines(inputCapture)) {
+                                context.getSource().sendFeedback(Text.literal(line));
+                            }
+                            return 1;
+                        }))
+                        .then(ClientCommandManager.literal("actions").executes(context -> {
+                            ActionBindings bindings = ServlinkerClient.actionBindings;
+                            if (bindings.getNames().isEmpty()) {
+                                context.getSource().sendFeedback(Text.literal("This server declared no actions"));
+                                return 0;
+                            }
+                            for (int actionId = 0; actionId < bindings.getNames().size(); actionId++) {
+                                context.getSource().sendFeedback(Text.literal((actionId + 1) + ". " + bindings.getNames().get(actionId) + ": ")
+                                        .append(Text.translatable(bindings.keyTranslationKey(actionId))));
+                            }
+                            return 1;
+                        }))
+                        .then(ClientCommandManager.literal("latency")
+                                .executes(context -> {
+                                    for (String line : inputCapture.getLatency().getHistograms().lines()) {
+                                        context.getSource().sendFeedback(Text.literal(line));
+                                    }
+                                    return 1;
+                                })
+                                .then(ClientCommandManager.literal("dump").executes(context -> {
+                                    try {
+                                        Path path = inputCapture.getLatency().getHistograms().dump(
+                                                FabricLoader.getInstance().getGameDir().resolve("servlinker").resolve("latency"), "client");
+                                        context.getSource().sendFeedback(Text.literal("Latency histograms written to " + path.getFileName()));
+                                        return 1;
+                                    } catch (IOException e) {
+                                        context.getSource().sendError(Text.literal("Could not write latency histograms: " + e.getMessage()));
+                                        return 0;
+                                    }
+                                }))
+                                .then(ClientCommandManager.literal("reset").executes(context -> {
+                                    inputCapture.getLatency().reset();
+                                    context.getSource().sendFeedback(Text.literal("Latency histograms reset"));
+                                    return 1;
+                                })))
+                        .then(ClientCommandManager.literal("journal")
+                                .then(ClientCommandManager.literal("start").executes(context -> {
+                                    try {
+                                        InputJournal journal = JournalManager.startRecording(inputCapture);
+                                        context.getSource().sendFeedback(Text.literal("Recording input to " + journal.getPath().getFileName()));
+                                        return 1;
+                                    } catch (IOException e) {
+                                        context.getSource().sendError(Text.literal("Could not start journal: " + e.getMessage()));
+                                        return 0;
+                                    }
+                                }))
+                                .then(ClientCommandManager.literal("stop").executes(context -> {
+                                    InputJournal journal = JournalManager.stopRecording(inputCapture);
+                                    if (journal == null) {
+                                        context.getSource().sendError(Text.literal("Not recording"));
+                                        return 0;
+                                    }
+                                    context.getSource().sendFeedback(Text.literal("Recorded " + journal.getEvents() + " events to " + journal.getPath().getFileName()));
+                                    return 1;
+                                })))
+                        .then(ClientCommandManager.literal("replay")
+                                .then(replayCommand("sink", JournalReplay.Target.SINK, inputCapture))
+                                .then(replayCommand("capture", JournalReplay.Target.CAPTURE, inputCapture))
+                                .then(ClientCommandManager.literal("stop").executes(context -> {
+                                    JournalManager.stopReplay();
+                                    return 1;
+                                })))
+        ));
+    }
+
+    // replay <sink|capture> <journal> [speed]
+    private static LiteralArgumentBuilder<FabricClientCommandSource> replayCommand(String name, JournalReplay.Target target, InputCapture inputCapture) {
+        return ClientCommandManager.literal(name)
+                .then(ClientCommandManager.argument("journal", StringArgumentType.string())
+                        .executes(context -> replay(context, 1.0, target, inputCapture))
+                        .then(ClientCommandManager.argument("speed", DoubleArgumentType.doubleArg(0.01, 1000.0))
+                                .executes(context -> replay(context, DoubleArgumentType.getDouble(context, "speed"), target, inputCapture))));
+    }
+
+    private static int replay(CommandContext<FabricClientCommandSource> context, double speed, JournalReplay.Target target, InputCapture inputCapture) {
+        String name = StringArgumentType.getString(context, "journal");
+        try {
+            JournalManager.startReplay(name, speed, target, inputCapture);
+            context.getSource().sendFeedback(Text.literal("Replaying " + name + " at " + speed + "x"));
+            return 1;
+        } catch (IOException | IllegalStateException e) {
+            context.getSource().sendError(Text.literal("Could not replay " + name + ": " + e.getMessage()));
+            return 0;
+        }
+    }
+}
@@ -6,7 +6,7 @@ import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
 import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
 import net.minecraft.text.Text;
-import org.grill.servlinker.client.networking.KeyInputToggleC2SPacket;
+import org.grill.servlinker.networking.KeyInputToggleC2SPacket;
 import org.grill.servlinker.client.utils.InputCapture;
 import org.lwjgl.glfw.GLFW;
 
@@ -25,6 +25,8 @@ public class KeybindManager {
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
             while (toggleInputKey.wasPressed()) {
                 if (inputCapture.isCapturing()) {
+                    // Input captured before the toggle must reach the server before it
+                    inputCapture.flush();
                     inputCapture.stopCapturing();
                     if(ServlinkerClient.serverHasPlugin) {
                         ClientPlayNetworking.send(new KeyInputToggleC2SPacket("off"));
@@ -1,59 +1,185 @@
 package org.grill.servlinker.client;
 
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
-import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
-import org.grill.servlinker.client.networking.KeyInputToggleC2SPacket;
+import org.grill.servlinker.client.journal.JournalManager;
 import org.grill.servlinker.client.utils.DebugLogger;
-import org.grill.servlinker.client.networking.AckC2SPacket;
-import org.grill.servlinker.client.networking.SyncS2CPacket;
+import org.grill.servlinker.networking.AckC2SPacket;
+import org.grill.servlinker.networking.ActionsS2CPacket;
+import org.grill.servlinker.networking.Capabilities;
+import org.grill.servlinker.networking.ConfigS2CPacket;
+import org.grill.servlinker.networking.HelloC2SPacket;
+import org.grill.servlinker.networking.HelloS2CPacket;
+import org.grill.servlinker.networking.LatencyEchoS2CPacket;
+import org.grill.servlinker.networking.SendPolicyS2CPacket;
+import org.grill.servlinker.networking.SubscriptionS2CPacket;
+import org.grill.servlinker.networking.SyncS2CPacket;
+import org.grill.servlinker.client.utils.CaptureMode;
 import org.grill.servlinker.client.utils.InputCapture;
-import org.grill.servlinker.client.networking.KeyPressC2SPacket;
+import org.grill.servlinker.client.utils.LatencyProbe;
+import org.grill.servlinker.client.utils.SuspendReason;
+import org.grill.servlinker.client.networking.WireFormat;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
 public class ServlinkerClient implements ClientModInitializer {
     public static final String MOD_ID = "ServLinker";
-    public static final DebugLogger LOGGER = new DebugLogger(LoggerFactory.getLogger(MOD_ID), true);
+    // Lifecycle logging only; per-event tracing goes through JFR (see client.trace)
+    public static final DebugLogger LOGGER = new DebugLogger(LoggerFactory.getLogger(MOD_ID), Boolean.getBoolean("servlinker.debug"));
 
     public static InputCapture inputCapture;
+    public static ActionBindings actionBindings;
     public static boolean serverHasPlugin = false;
+    // Everything this client can do; the server picks from it in ConfigS2CPacket
+    private static final int SUPPORTED_CAPABILITIES =
+            Capabilities.BINARY | Capabilities.BATCH | Capabilities.DICTIONARY | Capabilities.TAP | Capabilities.MOTION
+                    | Capabilities.STATE | Capabilities.ACTIONS | Capabilities.LANES | (LatencyProbe.INTERVAL_NANOS > 0 ? Capabilities.LATENCY : 0);
 
     @Override
     public void onInitializeClient() {
         LOGGER.info("ServLinker client initializing...");
         
-        PayloadTypeRegistry.playC2S().register(KeyInputToggleC2SPacket.ID, KeyInputToggleC2SPacket.CODEC);
-        PayloadTypeRegistry.playC2S().register(KeyPressC2SPacket.ID, KeyPressC2SPacket.CODEC);
-        PayloadTypeRegistry.playC2S().register(AckC2SPacket.ID, AckC2SPacket.CODEC);
-
-        PayloadTypeRegistry.playS2C().register(SyncS2CPacket.ID, SyncS2CPacket.CODEC);
-        
         LOGGER.info("Creating InputCapture instance...");
         register();
 
         LOGGER.info("Registering keybinds with InputCapture: {}", inputCapture != null ? "success" : "failed");
         KeybindManager.registerInputKeybind(inputCapture);
+        ClientCommands.register(inputCapture);
         LOGGER.info("ServLinker client mod initialized");
     }
 
     private void register() {
         LOGGER.info("Registering InputCapture and networking...");
         inputCapture = new InputCapture();
+        actionBindings = new ActionBindings();
+        inputCapture.setActionInput(actionBindings);
         LOGGER.info("InputCapture created successfully: {}", inputCapture != null);
 
+        ClientPlayNetworking.registerGlobalReceiver(HelloS2CPacket.ID, (packet, context) -> {
+            LOGGER.info("Received hello from server: protocol {}, offers {}", packet.protocolVersion(), Capabilities.describe(packet.capabilities()));
+            serverHasPlugin = true;
+            ClientPlayNetworking.send(new HelloC2SPacket(Capabilities.PROTOCOL_VERSION, SUPPORTED_CAPABILITIES,
+                    CaptureMode.supportedSamplingModes(), inputCapture.getCoalesceWindowMillis()));
+        });
+
+        ClientPlayNetworking.registerGlobalReceiver(ConfigS2CPacket.ID, (packet, context) -> {
+            LOGGER.info("Server picked protocol {}: {}, sampling {}", packet.protocolVersion(),
+                    Capabilities.describe(packet.capabilities()), packet.samplingMode());
+            inputCapture.applyConfig(packet);
+            if (Capabilities.has(packet.capabilities(), Capabilities.DICTIONARY)) {
+                ClientPlayNetworking.send(inputCapture.createKeyDictionary());
+                inputCapture.setSendingKeyNames(false);
+            }
+        });
+
+        // Servers from before the hello handshake
         ClientPlayNetworking.registerGlobalReceiver(SyncS2CPacket.ID, (packet, context) -> {
             LOGGER.info("Received sync packet from server - server has plugin");
             serverHasPlugin = true;
-            ClientPlayNetworking.send(new AckC2SPacket("ack"));
+
+            // The sync key lists the optional features the server understands, e.g. "binary,batch"
+            List<String> offered = Arrays.asList(packet.key().split(","));
+            StringBuilder ack = new StringBuilder("ack");
+            if (offered.contains("binary")) {
+                inputCapture.setWireFormat(WireFormat.BINARY);
+                ack.append("|binary");
+                // Binary events carry capture timestamps, tell the server how close counts as simultaneous
+                ack.append("|window=").append(inputCapture.getCoalesceWindowMillis());
+                // Batches carry binary events, so they are only offered together
+                if (offered.contains("batch")) {
+                    inputCapture.setBatching(true);
+                    ack.append("|batch");
+                    // "budget=200/20": key and button events per second / per tick, kept by coalescing taps within a batch
+                    for (String feature : offered) {
+                        if (feature.startsWith("budget=") && applyBudget(feature.substring("budget=".length()))) {
+                            ack.append("|tap");
+                        }
+                    }
+                }
+            }
+            // Key names travel once in a dictionary instead of with every string event
+            boolean dictionary = offered.contains("dictionary");
+            if (dictionary) {
+                ack.append("|dictionary");
+            }
+            LOGGER.info("Using {} input wire format", inputCapture.getWireFormat());
+            ClientPlayNetworking.send(new AckC2SPacket(ack.toString()));
+            if (dictionary) {
+                ClientPlayNetworking.send(inputCapture.createKeyDictionary());
+                inputCapture.setSendingKeyNames(false);
+            }
         });
 
+        ClientPlayNetworking.registerGlobalReceiver(ActionsS2CPacket.ID, (packet, context) -> {
+            LOGGER.info("Server declared actions: {}", packet.names());
+            actionBindings.assign(packet);
+        });
+
+        ClientPlayNetworking.registerGlobalReceiver(SendPolicyS2CPacket.ID, (packet, context) -> {
+            LOGGER.info("Received send policy: lanes {}, {} critical keys, defer {} ticks",
+                    Arrays.toString(packet.lanes()), packet.criticalKeys().length, packet.deferTicks());
+            inputCapture.getSendPolicy().apply(packet);
+        });
+
+        ClientPlayNetworking.registerGlobalReceiver(LatencyEchoS2CPacket.ID, (packet, context) -> inputCapture.getLatency().onEcho(packet));
+
+        ClientPlayNetworking.registerGlobalReceiver(SubscriptionS2CPacket.ID, (packet, context) -> {
+            LOGGER.info("Received input subscription: {} keys, {} chords, {} ordered combos, sequences={}",
+                    packet.allKeys() ? "all" : packet.keyCodes().length, packet.chords().size(), packet.ordered().size(), packet.sequences());
+            inputCapture.applySubscription(packet);
+        });
+
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
+            if (JournalManager.RECORD_SESSIONS) {
+                try {
+                    JournalManager.startRecording(inputCapture);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not start input journal: {}", e.getMessage());
+                }
+            }
+        });
+        ClientTickEvents.END_CLIENT_TICK.register(client -> JournalManager.tick());
+
         ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> {
-            LOGGER.info("Disconnected from server - stopping input capture");
+            LOGGER.info("Disconnected from server - suspending input capture");
             serverHasPlugin = false;
+            JournalManager.stopReplay();
             if (inputCapture != null) {
-                inputCapture.stopCapturing();
+                JournalManager.stopRecording(inputCapture);
+                inputCapture.setSuspendReason(SuspendReason.NO_WORLD);
+                inputCapture.setWireFormat(WireFormat.STRING);
+                inputCapture.setBatching(false);
+                inputCapture.setRateBudget(0, 0);
+                inputCapture.setSendingKeyNames(true);
+                inputCapture.setSendingMotion(true);
+                inputCapture.setSendingStateEvents(false);
+                inputCapture.getLatency().setEnabled(false);
+                inputCapture.getSendPolicy().reset();
+                actionBindings.clear();
+                inputCapture.setCaptureMode(CaptureMode.fromProperty());
+                inputCapture.setFrameRate(Integer.getInteger("servlinker.frameRate", 0));
+                inputCapture.resetSubscription();
+                inputCapture.getMetrics().reset();
             }
         });
     }
+
+    private static boolean applyBudget(String budget) {
+        String[] parts = budget.split("/");
+        try {
+            int perSecond = Integer.parseInt(parts[0]);
+            int perTick = parts.length > 1 ? Integer.parseInt(parts[1]) : perSecond;
+            inputCapture.setRateBudget(perSecond, perTick);
+            LOGGER.info("Server input budget: {}/s, {}/tick", perSecond, perTick);
+            return perSecond > 0 && perTick > 0;
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring malformed input budget: {}", budget);
+            return false;
+        }
+    }
 }
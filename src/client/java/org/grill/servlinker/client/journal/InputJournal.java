@@ -0,0 +1,115 @@
+package org.grill.servlinker.client.journal;
+
+import lombok.Getter;
+import org.grill.servlinker.networking.InputEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only binary journal of the events {@code InputCapture} produces, written through a memory-mapped
+ * file so recording costs a few byte stores per event and no allocation.
+ * <p>
+ * Layout: a header of magic, version and wall-clock start (epoch millis), then one record per event:
+ * <ul>
+ *     <li>{@code (kind << 2 | action) + 1}, so a zero byte marks the end of the journal</li>
+ *     <li>varint code count</li>
+ *     <li>zigzag varlong microseconds since the previous record (the first since the journal started)</li>
+ *     <li>zigzag varint codes</li>
+ * </ul>
+ * The file is mapped in chunks and truncated to its contents on {@link #close()}. Client thread only.
+ */
+public final class InputJournal implements AutoCloseable {
+    static final int MAGIC = 0x534C4A31; // "SLJ1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 8;
+    private static final long CHUNK_SIZE = 4L << 20;
+    private static final int MAX_RECORD_SIZE = 1 + 5 + 10 + 64 * 5;
+
+    @Getter private final Path path;
+    private final FileChannel channel;
+    private final long startNanos;
+    private MappedByteBuffer buffer;
+    private long chunkOffset; // file offset of the current chunk
+    private long lastNanos;
+    @Getter private long events = 0L;
+
+    private InputJournal(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+        map(0L);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(System.currentTimeMillis());
+    }
+
+    public static InputJournal create(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new InputJournal(path, channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public void append(InputEvent event) throws IOException {
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            map(chunkOffset + buffer.position());
+        }
+        int[] codes = event.codes();
+        buffer.put((byte) ((event.kind().ordinal() << 2 | event.action().ordinal()) + 1));
+        putVarLong(buffer, codes.length);
+        long deltaMicros = (event.timestampNanos() - lastNanos) / 1000L;
+        putVarLong(buffer, zigzag(deltaMicros));
+        for (int code : codes) {
+            putVarLong(buffer, zigzag(code));
+        }
+        lastNanos += deltaMicros * 1000L; // what the reader reconstructs, so rounding does not drift
+        events++;
+    }
+
+    /** Bytes written so far, header included. */
+    public long size() {
+        return chunkOffset + buffer.position();
+    }
+
+    private void map(long offset) throws IOException {
+        chunkOffset = offset;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, CHUNK_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        long size = size();
+        buffer.force();
+        try {
+            channel.truncate(size);
+        } catch (IOException e) {
+            // Some platforms refuse to shrink a mapped file; readers stop at the zero tail anyway
+        }
+        channel.close();
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
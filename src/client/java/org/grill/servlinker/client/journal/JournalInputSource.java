@@ -0,0 +1,107 @@
+package org.grill.servlinker.client.journal;
+
+import org.grill.servlinker.client.utils.InputCallbackQueue;
+import org.grill.servlinker.client.utils.InputSource;
+
+/**
+ * Presents journal records to a dedicated {@code InputCapture} as GLFW callbacks, so a replay runs through
+ * the whole capture pipeline again. Only key and button transitions are replayed; sequences are derived
+ * again by the pipeline, and motion was recorded in subscription units rather than pixels.
+ */
+final class JournalInputSource implements InputSource {
+    private static final int CAPACITY = 1024;
+
+    private final int[] types = new int[CAPACITY];
+    private final int[] codes = new int[CAPACITY];
+    private final boolean[] pressed = new boolean[CAPACITY];
+    private final long[] timestamps = new long[CAPACITY];
+    private int count = 0;
+    private int dropped = 0;
+    private final boolean[] keysDown = new boolean[512];
+    private final boolean[] buttonsDown = new boolean[8];
+
+    void push(int type, int code, boolean down, long timestampNanos) {
+        boolean[] state = type == InputCallbackQueue.TYPE_KEY ? keysDown : buttonsDown;
+        if (code < 0 || code >= state.length) return;
+        state[code] = down;
+        if (count == CAPACITY) {
+            dropped++;
+            return;
+        }
+        types[count] = type;
+        codes[count] = code;
+        pressed[count] = down;
+        timestamps[count] = timestampNanos;
+        count++;
+    }
+
+    /** Releases what is not in the snapshot and presses what is, like the STATE event it came from. */
+    void reconcile(int[] heldKeyCodes, int mouseButtons, long timestampNanos) {
+        boolean[] held = new boolean[keysDown.length];
+        for (int keyCode : heldKeyCodes) {
+            if (keyCode >= 0 && keyCode < held.length) held[keyCode] = true;
+        }
+        for (int key = 0; key < keysDown.length; key++) {
+            if (keysDown[key] != held[key]) push(InputCallbackQueue.TYPE_KEY, key, held[key], timestampNanos);
+        }
+        for (int button = 0; button < buttonsDown.length; button++) {
+            boolean down = (mouseButtons & (1 << button)) != 0;
+            if (buttonsDown[button] != down) push(InputCallbackQueue.TYPE_MOUSE_BUTTON, button, down, timestampNanos);
+        }
+    }
+
+    void releaseAll(long timestampNanos) {
+        for (int key = 0; key < keysDown.length; key++) {
+            if (keysDown[key]) push(InputCallbackQueue.TYPE_KEY, key, false, timestampNanos);
+        }
+        for (int button = 0; button < buttonsDown.length; button++) {
+            if (buttonsDown[button]) push(InputCallbackQueue.TYPE_MOUSE_BUTTON, button, false, timestampNanos);
+        }
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public boolean isKeyDown(int keyCode) {
+        return keyCode >= 0 && keyCode < keysDown.length && keysDown[keyCode];
+    }
+
+    @Override
+    public boolean isMouseButtonDown(int button) {
+        return button >= 0 && button < buttonsDown.length && buttonsDown[button];
+    }
+
+    @Override
+    public void setCallbacksEnabled(boolean enabled) {
+        discardCallbacks();
+    }
+
+    @Override
+    public int drainCallbacks(Callback callback) {
+        for (int i = 0; i < count; i++) {
+            callback.accept(types[i], codes[i], pressed[i], timestamps[i]);
+        }
+        count = 0;
+        int lost = dropped;
+        dropped = 0;
+        return lost;
+    }
+
+    @Override
+    public void discardCallbacks() {
+        count = 0;
+        dropped = 0;
+    }
+
+    @Override
+    public void setMotionEnabled(boolean enabled) {
+    }
+
+    @Override
+    public boolean drainMotion(double[] deltas) {
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+package org.grill.servlinker.client.journal;
+
+import lombok.Getter;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.fabricmc.loader.api.FabricLoader;
+import org.grill.servlinker.client.ServlinkerClient;
+import org.grill.servlinker.client.utils.DebugLogger;
+import org.grill.servlinker.client.utils.InputCapture;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Owns the active recording and replay, both on the client thread. Journals live in
+ * {@code <game dir>/servlinker/journals}; with {@code -Dservlinker.journal=true} every server session is recorded.
+ */
+public final class JournalManager {
+    private static final DebugLogger LOGGER = ServlinkerClient.LOGGER;
+    public static final boolean RECORD_SESSIONS = Boolean.getBoolean("servlinker.journal");
+    private static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    @Getter private static JournalReplay replay;
+
+    private JournalManager() {}
+
+    public static Path directory() {
+        return FabricLoader.getInstance().getGameDir().resolve("servlinker").resolve("journals");
+    }
+
+    /** Starts recording into a new journal; returns it, or the one already recording. */
+    public static InputJournal startRecording(InputCapture capture) throws IOException {
+        if (capture.getJournal() != null) {
+            return capture.getJournal();
+        }
+        Files.createDirectories(directory());
+        InputJournal journal = InputJournal.create(directory().resolve(FILE_NAME.format(LocalDateTime.now()) + ".journal"));
+        capture.setJournal(journal);
+        LOGGER.info("Recording input to {}", journal.getPath());
+        return journal;
+    }
+
+    /** Stops recording; returns the finished journal, or null if none was recording. */
+    public static InputJournal stopRecording(InputCapture capture) {
+        InputJournal journal = capture.getJournal();
+        if (journal == null) {
+            return null;
+        }
+        capture.setJournal(null);
+        try {
+            journal.close();
+            LOGGER.info("Recorded {} input events to {}", journal.getEvents(), journal.getPath());
+        } catch (IOException e) {
+            LOGGER.warn("Could not finish input journal {}: {}", journal.getPath(), e.getMessage());
+        }
+        return journal;
+    }
+
+    /** Replays a journal from the journal directory to the connected server, replacing any running replay. */
+    public static JournalReplay startReplay(String name, double speed, JournalReplay.Target target, InputCapture live) throws IOException {
+        Path path = directory().resolve(name.endsWith(".journal") ? name : name + ".journal").normalize();
+        if (!path.startsWith(directory())) {
+            throw new IOException("Journal must be in " + directory());
+        }
+        stopReplay();
+        replay = JournalReplay.start(JournalReader.open(path), speed, target, ClientPlayNetworking::send, live);
+        LOGGER.info("Replaying {} at {}x through the {}", path, speed, target);
+        return replay;
+    }
+
+    public static void stopReplay() {
+        if (replay != null) {
+            replay.stop();
+            replay = null;
+        }
+    }
+
+    /** Advances the running replay; called every client tick while connected. */
+    public static void tick() {
+        if (replay == null) return;
+        replay.tick(System.nanoTime());
+        if (replay.isFinished()) {
+            LOGGER.info("Replay finished after {} events", replay.getReplayed());
+            replay = null;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.grill.servlinker.client.journal;
+
+import lombok.Getter;
+import org.grill.servlinker.networking.InputEvent;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads an {@link InputJournal} record by record. {@link #next()} decodes into reused fields, so scanning a
+ * journal allocates nothing until {@link #toEvent} is called.
+ */
+public final class JournalReader {
+    private static final InputEvent.Kind[] KINDS = InputEvent.Kind.values();
+    private static final InputEvent.Action[] ACTIONS = InputEvent.Action.values();
+
+    private final MappedByteBuffer buffer;
+    @Getter private final long startEpochMillis;
+    @Getter private InputEvent.Kind kind;
+    @Getter private InputEvent.Action action;
+    private final int[] codes = new int[64];
+    @Getter private int codeCount;
+    @Getter private long timeNanos; // since the journal started
+
+    private JournalReader(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.remaining() < InputJournal.HEADER_SIZE || buffer.getInt() != InputJournal.MAGIC) {
+            throw new IOException("Not a ServLinker input journal");
+        }
+        int version = buffer.getInt();
+        if (version != InputJournal.VERSION) {
+            throw new IOException("Unsupported journal version " + version);
+        }
+        startEpochMillis = buffer.getLong();
+    }
+
+    public static JournalReader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), Integer.MAX_VALUE);
+            // The mapping stays valid after the channel is closed
+            return new JournalReader(channel.map(FileChannel.MapMode.READ_ONLY, 0L, size));
+        }
+    }
+
+    /** Advances to the next record; false at the end of the journal or at a truncated record. */
+    public boolean next() {
+        if (!buffer.hasRemaining()) return false;
+        int header = (buffer.get() & 0xFF) - 1;
+        if (header < 0) return false;
+        try {
+            int kindIndex = header >>> 2;
+            int actionIndex = header & 0b11;
+            long count = getVarLong();
+            if (kindIndex >= KINDS.length || actionIndex >= ACTIONS.length || count < 0 || count > codes.length) {
+                return false;
+            }
+            kind = KINDS[kindIndex];
+            action = ACTIONS[actionIndex];
+            codeCount = (int) count;
+            timeNanos += InputJournal.unzigzag(getVarLong()) * 1000L;
+            for (int i = 0; i < codeCount; i++) {
+                codes[i] = (int) InputJournal.unzigzag(getVarLong());
+            }
+            return true;
+        } catch (java.nio.BufferUnderflowException e) {
+            return false;
+        }
+    }
+
+    public int code(int i) {
+        return codes[i];
+    }
+
+    /** The current record as an event, placing the journal start at {@code baseNanos}. */
+    public InputEvent toEvent(long baseNanos, double speed) {
+        return new InputEvent(kind, action, java.util.Arrays.copyOf(codes, codeCount), baseNanos + (long) (timeNanos / speed));
+    }
+
+    private long getVarLong() {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new java.nio.BufferUnderflowException();
+    }
+}
@@ -0,0 +1,142 @@
+package org.grill.servlinker.client.journal;
+
+import lombok.Getter;
+import org.grill.servlinker.client.networking.WireFormat;
+import org.grill.servlinker.client.utils.CaptureMode;
+import org.grill.servlinker.client.utils.InputCallbackQueue;
+import org.grill.servlinker.client.utils.InputCapture;
+import org.grill.servlinker.client.utils.PacketSink;
+import org.grill.servlinker.networking.InputBatchC2SPacket;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.networking.InputEventC2SPacket;
+
+/**
+ * Plays a journal back in real time, or {@code speed} times faster, driven by {@link #tick}.
+ * <p>
+ * {@link Target#SINK} sends the recorded events as they are, one batch per tick; {@link Target#CAPTURE}
+ * feeds the key and button transitions through a fresh {@link InputCapture}, which derives sequences,
+ * applies the wire format and sends like a live client would.
+ */
+public final class JournalReplay {
+    public enum Target { SINK, CAPTURE }
+
+    private final JournalReader reader;
+    private final double speed;
+    @Getter private final Target target;
+    private final PacketSink sink;
+    private final JournalInputSource source;
+    private final InputCapture capture;
+    private final boolean sendingStateEvents; // STATE events only go to servers that negotiated them
+    private final java.util.List<InputEvent> batch = new java.util.ArrayList<>();
+    private long startNanos = 0L;
+    private boolean hasRecord;
+    @Getter private long replayed = 0L;
+
+    private JournalReplay(JournalReader reader, double speed, Target target, PacketSink sink, InputCapture live) {
+        this.reader = reader;
+        this.speed = speed;
+        this.target = target;
+        this.sink = sink;
+        this.sendingStateEvents = live.isSendingStateEvents();
+        if (target == Target.CAPTURE) {
+            source = new JournalInputSource();
+            capture = new InputCapture(source, sink);
+            capture.setCaptureMode(CaptureMode.CALLBACK);
+            capture.setWireFormat(live.getWireFormat());
+            capture.setBatching(live.isBatching());
+            capture.setSendingKeyNames(live.isSendingKeyNames());
+        } else {
+            source = null;
+            capture = null;
+        }
+        hasRecord = reader.next();
+    }
+
+    /** The sink target sends binary events, so it needs a server that negotiated the binary format. */
+    public static JournalReplay start(JournalReader reader, double speed, Target target, PacketSink sink, InputCapture live) {
+        if (target == Target.SINK && live.getWireFormat() != WireFormat.BINARY) {
+            throw new IllegalStateException("Server did not negotiate binary input");
+        }
+        return new JournalReplay(reader, speed, target, sink, live);
+    }
+
+    public boolean isFinished() {
+        return !hasRecord;
+    }
+
+    /** Sends everything that is due by {@code nowNanos}. */
+    public void tick(long nowNanos) {
+        if (startNanos == 0L) {
+            startNanos = nowNanos;
+        }
+        double due = (nowNanos - startNanos) * speed;
+        while (hasRecord && reader.getTimeNanos() <= due) {
+            dispatch();
+            replayed++;
+            hasRecord = reader.next();
+        }
+        if (capture != null) {
+            capture.tick();
+        } else if (batch.size() == 1) {
+            sink.send(new InputEventC2SPacket(batch.get(0)));
+        } else if (!batch.isEmpty()) {
+            sink.send(new InputBatchC2SPacket(java.util.List.copyOf(batch)));
+        }
+        batch.clear();
+    }
+
+    private void dispatch() {
+        if (capture == null) {
+            if (reader.getKind() != InputEvent.Kind.STATE || sendingStateEvents) {
+                batch.add(reader.toEvent(startNanos, speed));
+                if (batch.size() == InputBatchC2SPacket.MAX_EVENTS) {
+                    // Fast replays can outrun one batch per tick
+                    sink.send(new InputBatchC2SPacket(java.util.List.copyOf(batch)));
+                    batch.clear();
+                }
+            }
+            return;
+        }
+        long timestamp = startNanos + (long) (reader.getTimeNanos() / speed);
+        if (reader.getKind() == InputEvent.Kind.STATE) {
+            if (reader.getCodeCount() == 0) return;
+            int held = reader.getCodeCount() - 1;
+            int[] heldKeyCodes = new int[held];
+            for (int i = 0; i < held; i++) {
+                heldKeyCodes[i] = reader.code(i);
+            }
+            source.reconcile(heldKeyCodes, reader.code(held), timestamp);
+            return;
+        }
+        int type = switch (reader.getKind()) {
+            case KEY -> InputCallbackQueue.TYPE_KEY;
+            case MOUSE_BUTTON -> InputCallbackQueue.TYPE_MOUSE_BUTTON;
+            default -> -1;
+        };
+        if (type < 0) return;
+        switch (reader.getAction()) {
+            case PRESS -> source.push(type, reader.code(0), true, timestamp);
+            case RELEASE -> source.push(type, reader.code(0), false, timestamp);
+            case TAP -> {
+                for (int i = 0; i < reader.code(1); i++) {
+                    source.push(type, reader.code(0), true, timestamp);
+                    source.push(type, reader.code(0), false, timestamp);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    /**
+     * Ends the replay early. The capture target first releases whatever it still holds; the sink target sends
+     * recorded events verbatim and leaves the rest of the journal, releases included, unsent.
+     */
+    public void stop() {
+        if (capture != null) {
+            source.releaseAll(System.nanoTime());
+            capture.tick();
+            capture.stopCapturing();
+        }
+        hasRecord = false;
+    }
+}
@@ -0,0 +1,11 @@
+package org.grill.servlinker.client.networking;
+
+import org.grill.servlinker.networking.InputEventC2SPacket;
+import org.grill.servlinker.networking.KeyPressC2SPacket;
+
+public enum WireFormat {
+    /** Legacy pipe-delimited {@link KeyPressC2SPacket} strings, understood by every server plugin. */
+    STRING,
+    /** Typed {@link InputEventC2SPacket} payloads, only used once the server has opted in. */
+    BINARY
+}
@@ -0,0 +1,23 @@
+package org.grill.servlinker.client.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("servlinker.CaptureTick")
+@Label("Input Capture Tick")
+@Description("One END_CLIENT_TICK pass of InputCapture")
+@Category({"ServLinker", "Input"})
+@StackTrace(false)
+public class CaptureTickEvent extends jdk.jfr.Event {
+    @Label("Capture Mode")
+    public String mode;
+
+    @Label("Events Detected")
+    public int eventsDetected;
+
+    @Label("Keys Held")
+    public int keysHeld;
+}
@@ -0,0 +1,46 @@
+package org.grill.servlinker.client.trace;
+
+import jdk.jfr.EventType;
+import org.grill.servlinker.networking.InputEvent;
+
+import java.util.Arrays;
+
+/**
+ * Emits the ServLinker JFR events. Every method checks {@code shouldCommit()} before building any field,
+ * so with no recording running the cost is a disabled-event check the JIT can eliminate.
+ * Start a recording with {@code -XX:StartFlightRecording} or {@code jcmd <pid> JFR.start}.
+ */
+public final class InputTrace {
+    private static final EventType CAPTURE_TICK = EventType.getEventType(CaptureTickEvent.class);
+
+    private InputTrace() {}
+
+    /**
+     * Begins timing a capture tick, or returns null when no recording has the event enabled.
+     * Checked per tick so the idle tick path does not allocate an event just to discard it.
+     */
+    public static CaptureTickEvent beginCaptureTick() {
+        if (!CAPTURE_TICK.isEnabled()) return null;
+        CaptureTickEvent event = new CaptureTickEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void sequenceTransition(InputEvent.Action action, int[] keyCodes, boolean registered) {
+        SequenceTransitionEvent event = new SequenceTransitionEvent();
+        if (!event.shouldCommit()) return;
+        event.action = action.name();
+        event.keyCodes = Arrays.toString(keyCodes);
+        event.registered = registered;
+        event.commit();
+    }
+
+    public static void packetSent(String payload, int events, int bytes) {
+        PacketSentEvent event = new PacketSentEvent();
+        if (!event.shouldCommit()) return;
+        event.payload = payload;
+        event.events = events;
+        event.bytes = bytes;
+        event.commit();
+    }
+}
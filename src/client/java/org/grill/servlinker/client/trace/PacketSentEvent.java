@@ -0,0 +1,23 @@
+package org.grill.servlinker.client.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("servlinker.PacketSent")
+@Label("Input Packet Sent")
+@Category({"ServLinker", "Network"})
+@StackTrace(false)
+public class PacketSentEvent extends jdk.jfr.Event {
+    @Label("Payload")
+    public String payload;
+
+    @Label("Events")
+    public int events;
+
+    @Label("Payload Size")
+    @DataAmount
+    public int bytes;
+}
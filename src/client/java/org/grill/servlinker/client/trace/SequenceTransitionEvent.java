@@ -0,0 +1,21 @@
+package org.grill.servlinker.client.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("servlinker.SequenceTransition")
+@Label("Input Sequence Transition")
+@Category({"ServLinker", "Input"})
+@StackTrace(false)
+public class SequenceTransitionEvent extends jdk.jfr.Event {
+    @Label("Action")
+    public String action;
+
+    @Label("Key Codes")
+    public String keyCodes;
+
+    @Label("Registered Combo")
+    public boolean registered;
+}
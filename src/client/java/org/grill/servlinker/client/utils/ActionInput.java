@@ -0,0 +1,17 @@
+package org.grill.servlinker.client.utils;
+
+import org.grill.servlinker.networking.InputEvent;
+
+/** Server-declared actions the player has bound to keys, polled by {@link InputCapture} once per tick. */
+public interface ActionInput {
+    @FunctionalInterface
+    interface Listener {
+        void onAction(InputEvent.Action action, int actionId, long timestampNanos);
+    }
+
+    /** Reports actions pressed or released since the last poll, in action id order. */
+    void poll(Listener listener, long nowNanos);
+
+    /** Reports a release for every action still held and forgets presses not polled yet. */
+    void releaseAll(Listener listener, long nowNanos);
+}
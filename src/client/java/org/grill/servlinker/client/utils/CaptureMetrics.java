@@ -0,0 +1,76 @@
+package org.grill.servlinker.client.utils;
+
+import lombok.Getter;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.utils.NanoHistogram;
+
+/**
+ * Per-session counters for what input capture costs, shown in the F3 overlay and by {@code /servlinker stats}.
+ * <p>
+ * Updated and read on the client thread only. Capture-tick times go into a {@link NanoHistogram}.
+ */
+public final class CaptureMetrics {
+    private final long[] eventsByKind = new long[InputEvent.Kind.values().length];
+    @Getter private long packets;
+    @Getter private long bytes;
+    @Getter private long dropped;   // lost to a full callback queue or the sequence limit
+    @Getter private long coalesced; // events merged into a batch packet or a tap instead of getting their own
+    private final NanoHistogram tickTimes = new NanoHistogram();
+    private long sessionStartNanos = System.nanoTime();
+
+    public void recordEvent(InputEvent.Kind kind) {
+        eventsByKind[kind.ordinal()]++;
+    }
+
+    public void recordPacket(int events, int size) {
+        packets++;
+        bytes += size;
+        coalesced += events - 1;
+    }
+
+    public void recordCoalesced(int count) {
+        coalesced += count;
+    }
+
+    public void recordDropped(int count) {
+        dropped += count;
+    }
+
+    public void recordTick(long nanos) {
+        tickTimes.record(nanos);
+    }
+
+    public long getEvents(InputEvent.Kind kind) {
+        return eventsByKind[kind.ordinal()];
+    }
+
+    public long getEvents() {
+        long total = 0;
+        for (long count : eventsByKind) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** Average rate of {@code count} over this session. */
+    public double perSecond(long count) {
+        long elapsed = System.nanoTime() - sessionStartNanos;
+        return elapsed <= 0 ? 0.0 : count * 1_000_000_000.0 / elapsed;
+    }
+
+    public long getTicks() {
+        return tickTimes.count();
+    }
+
+    /** Upper bound of the bucket holding the given fraction of capture ticks, 0 with no ticks yet. */
+    public long tickPercentileNanos(double fraction) {
+        return tickTimes.percentile(fraction);
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(eventsByKind, 0L);
+        packets = bytes = dropped = coalesced = 0L;
+        tickTimes.reset();
+        sessionStartNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,48 @@
+package org.grill.servlinker.client.utils;
+
+import org.grill.servlinker.networking.Capabilities;
+
+public enum CaptureMode {
+    /** Poll every tracked key and mouse button once per client tick. */
+    POLLING,
+    /** Record GLFW key/mouse callbacks as they happen and drain them on the client tick. */
+    CALLBACK,
+    /**
+     * Poll on every rendered frame, or at {@code servlinker.frameRate} samples per second if set, and send
+     * at the next tick. Events keep their sample time, so the server sees sub-tick timing.
+     */
+    FRAME;
+
+    /** This mode as a {@code Capabilities.SAMPLING_*} value. */
+    public int samplingMode() {
+        return switch (this) {
+            case POLLING -> Capabilities.SAMPLING_POLLING;
+            case CALLBACK -> Capabilities.SAMPLING_CALLBACK;
+            case FRAME -> Capabilities.SAMPLING_FRAME;
+        };
+    }
+
+    /** The mode a server asked for, or null when it leaves the choice to the client. */
+    public static CaptureMode fromSamplingMode(int samplingMode) {
+        for (CaptureMode mode : values()) {
+            if (mode.samplingMode() == samplingMode) return mode;
+        }
+        return null;
+    }
+
+    /** Bit {@code 1 << samplingMode()} for every mode, as advertised in the handshake. */
+    public static int supportedSamplingModes() {
+        int modes = 0;
+        for (CaptureMode mode : values()) {
+            modes |= 1 << mode.samplingMode();
+        }
+        return modes;
+    }
+
+    public static CaptureMode fromProperty() {
+        String value = System.getProperty("servlinker.capture", "callback");
+        if ("polling".equalsIgnoreCase(value)) return POLLING;
+        if ("frame".equalsIgnoreCase(value)) return FRAME;
+        return CALLBACK;
+    }
+}
@@ -0,0 +1,21 @@
+package org.grill.servlinker.client.utils;
+
+import net.minecraft.client.MinecraftClient;
+import org.grill.servlinker.client.ServlinkerClient;
+
+/**
+ * Decides whether input can matter to the server. Keys typed into chat, pressed in an inventory or while the
+ * window is in the background are not game input, and nothing needs capturing for a server without ServLinker.
+ */
+public final class CaptureScheduler {
+    private CaptureScheduler() {}
+
+    public static SuspendReason reasonFor(MinecraftClient client) {
+        if (client.player == null) return SuspendReason.NO_WORLD;
+        if (!ServlinkerClient.serverHasPlugin) return SuspendReason.NO_PLUGIN;
+        if (!client.isWindowFocused()) return SuspendReason.UNFOCUSED;
+        if (client.isPaused()) return SuspendReason.PAUSED;
+        if (client.currentScreen != null) return SuspendReason.SCREEN;
+        return SuspendReason.NONE;
+    }
+}
@@ -0,0 +1,211 @@
+package org.grill.servlinker.client.utils;
+
+import org.grill.servlinker.networking.InputEvent;
+
+/**
+ * Matches the server's registered chords and ordered combos incrementally, one key transition at a time.
+ * <p>
+ * Chords (keys held together, any order) are indexed by key, so a transition only looks at the chords
+ * containing that key and compares their bitmask against {@link KeyState}. Ordered combos
+ * (e.g. ctrl then shift then A) are compiled into a trie over dense key indices; the matcher follows one
+ * path through it while keys are pressed in order, and releasing a key on the path cuts it back. A press
+ * that does not continue the path but starts another combo replaces the path, releasing what it completed.
+ * Keys no combo uses never touch either structure, so overlaps like W+D while strafing report nothing.
+ */
+public final class ComboMatcher {
+    @FunctionalInterface
+    public interface Listener {
+        void onCombo(InputEvent.Action action, int[] keyCodes, long timestampNanos);
+    }
+
+    private static final int[] NONE = new int[0];
+
+    private final KeyState keys;
+    private final int keyCount;
+
+    // Chords
+    private final long[] chordMasks;
+    private final int[][] chordCodes;
+    private final int[][] chordsByKey; // dense index -> ids of the chords containing it
+    private final boolean[] chordActive;
+    private final boolean[] chordBroken;
+
+    // Ordered combos; node 0 is the root, so a child of 0 means "no transition"
+    private final int[] children;  // node * keyCount + index -> child node
+    private final int[] terminal;  // node -> ordered combo id, -1 if none ends here
+    private final int[][] orderedCodes;
+    private final boolean[] orderedKey; // dense index used by any ordered combo
+    private final int[] pathNodes;
+    private final int[] pathKeys;
+    private int depth = 0;
+
+    private ComboMatcher(KeyState keys, int[][] chords, int[][] ordered) {
+        this.keys = keys;
+        this.keyCount = keys.size();
+
+        chordMasks = new long[chords.length * KeyState.WORDS];
+        chordCodes = new int[chords.length][];
+        chordActive = new boolean[chords.length];
+        chordBroken = new boolean[chords.length];
+        int[] perKey = new int[keyCount];
+        for (int c = 0; c < chords.length; c++) {
+            chordCodes[c] = new int[chords[c].length];
+            for (int i = 0; i < chords[c].length; i++) {
+                int index = chords[c][i];
+                chordCodes[c][i] = keys.keyCode(index);
+                chordMasks[c * KeyState.WORDS + (index >>> 6)] |= 1L << index;
+                perKey[index]++;
+            }
+        }
+        chordsByKey = new int[keyCount][];
+        for (int index = 0; index < keyCount; index++) {
+            chordsByKey[index] = perKey[index] == 0 ? NONE : new int[perKey[index]];
+            perKey[index] = 0;
+        }
+        for (int c = 0; c < chords.length; c++) {
+            for (int index : chords[c]) {
+                chordsByKey[index][perKey[index]++] = c;
+            }
+        }
+
+        int maxNodes = 1;
+        int maxDepth = 0;
+        for (int[] combo : ordered) {
+            maxNodes += combo.length;
+            maxDepth = Math.max(maxDepth, combo.length);
+        }
+        int[] trie = new int[maxNodes * keyCount];
+        int[] ends = new int[maxNodes];
+        java.util.Arrays.fill(ends, -1);
+        orderedCodes = new int[ordered.length][];
+        orderedKey = new boolean[keyCount];
+        int nodeCount = 1;
+        for (int o = 0; o < ordered.length; o++) {
+            orderedCodes[o] = new int[ordered[o].length];
+            int node = 0;
+            for (int i = 0; i < ordered[o].length; i++) {
+                int index = ordered[o][i];
+                orderedCodes[o][i] = keys.keyCode(index);
+                orderedKey[index] = true;
+                int slot = node * keyCount + index;
+                if (trie[slot] == 0) {
+                    trie[slot] = nodeCount++;
+                }
+                node = trie[slot];
+            }
+            if (ends[node] < 0) {
+                ends[node] = o;
+            }
+        }
+        children = java.util.Arrays.copyOf(trie, nodeCount * keyCount);
+        terminal = java.util.Arrays.copyOf(ends, nodeCount);
+        pathNodes = new int[maxDepth];
+        pathKeys = new int[maxDepth];
+    }
+
+    /**
+     * Compiles combos given as dense key indices. Combos shorter than two keys or with repeated keys are skipped.
+     */
+    public static ComboMatcher compile(KeyState keys, java.util.List<int[]> chords, java.util.List<int[]> ordered) {
+        return new ComboMatcher(keys, valid(chords), valid(ordered));
+    }
+
+    private static int[][] valid(java.util.List<int[]> combos) {
+        return combos.stream()
+                .filter(combo -> combo.length >= 2 && java.util.Arrays.stream(combo).distinct().count() == combo.length)
+                .toArray(int[][]::new);
+    }
+
+    public boolean isEmpty() {
+        return chordCodes.length == 0 && orderedCodes.length == 0;
+    }
+
+    /** Call after {@link KeyState#press}. */
+    public void onPress(int index, long timestampNanos, Listener listener) {
+        for (int c : chordsByKey[index]) {
+            if (!chordActive[c] && keys.containsAll(chordMasks, c * KeyState.WORDS)) {
+                chordActive[c] = true;
+                listener.onCombo(chordBroken[c] ? InputEvent.Action.RESTORE : InputEvent.Action.PRESS, chordCodes[c], timestampNanos);
+                chordBroken[c] = false;
+            }
+        }
+
+        if (!orderedKey[index]) return;
+        int node = depth == 0 ? 0 : pathNodes[depth - 1];
+        int next = depth < pathNodes.length ? children[node * keyCount + index] : 0;
+        if (next == 0 && depth > 0) {
+            // Out of order for the current path, but it may be the first key of another combo
+            next = children[index];
+            if (next != 0) {
+                cut(0, timestampNanos, listener);
+            }
+        }
+        if (next == 0) return;
+        pathNodes[depth] = next;
+        pathKeys[depth] = index;
+        depth++;
+        if (terminal[next] >= 0) {
+            listener.onCombo(InputEvent.Action.PRESS, orderedCodes[terminal[next]], timestampNanos);
+        }
+    }
+
+    /** Call after {@link KeyState#release}. */
+    public void onRelease(int index, long timestampNanos, Listener listener) {
+        for (int c : chordsByKey[index]) {
+            if (chordActive[c]) {
+                chordActive[c] = false;
+                chordBroken[c] = true;
+                listener.onCombo(InputEvent.Action.RELEASE, chordCodes[c], timestampNanos);
+            }
+            if (chordBroken[c] && !keys.containsAny(chordMasks, c * KeyState.WORDS)) {
+                chordBroken[c] = false;
+            }
+        }
+
+        if (!orderedKey[index]) return;
+        for (int d = 0; d < depth; d++) {
+            if (pathKeys[d] == index) {
+                // Everything from the released key onwards no longer holds
+                cut(d, timestampNanos, listener);
+                return;
+            }
+        }
+    }
+
+    // Shortens the path to d nodes, releasing the ordered combos completed past that point
+    private void cut(int d, long timestampNanos, Listener listener) {
+        for (int node = depth - 1; node >= d; node--) {
+            int combo = terminal[pathNodes[node]];
+            if (combo >= 0) {
+                listener.onCombo(InputEvent.Action.RELEASE, orderedCodes[combo], timestampNanos);
+            }
+        }
+        depth = d;
+    }
+
+    /** Chords currently held plus ordered combos completed on the current path; for diagnostics. */
+    public int activeCount() {
+        int count = 0;
+        for (boolean active : chordActive) {
+            if (active) count++;
+        }
+        for (int d = 0; d < depth; d++) {
+            if (terminal[pathNodes[d]] >= 0) count++;
+        }
+        return count;
+    }
+
+    public int brokenCount() {
+        int count = 0;
+        for (boolean broken : chordBroken) {
+            if (broken) count++;
+        }
+        return count;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(chordActive, false);
+        java.util.Arrays.fill(chordBroken, false);
+        depth = 0;
+    }
+}
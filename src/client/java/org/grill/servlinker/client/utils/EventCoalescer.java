@@ -0,0 +1,206 @@
+package org.grill.servlinker.client.utils;
+
+import lombok.Getter;
+import org.grill.servlinker.networking.InputEvent;
+
+/**
+ * Keeps the key and mouse-button events of a tick's batch under the event budget the server advertised.
+ * <p>
+ * Transitions are tracked per key or button against the state last sent to the server. At the end of a
+ * tick each one collapses into at most its net change plus a TAP carrying the number of extra press and
+ * release pairs, placed where its first transition was. When the per-tick budget or the per-second
+ * token bucket runs out, taps are dropped first; if even the net change does not fit it is deferred to a
+ * later tick, so the server always ends up with the final state.
+ * <p>
+ * The budget counts key and mouse-button events only. Every other kind (sequences, motion, scroll, state,
+ * actions) passes through unchanged and does not use it.
+ */
+public final class EventCoalescer {
+    private final KeyState keys;
+    private final CaptureMetrics metrics;
+
+    // Slots are dense key indices followed by mouse buttons
+    private final boolean[] serverDown;
+    private final boolean[] localDown;
+    private final int[] transitions;   // since the state last sent
+    private final long[] timestamps;   // of the latest transition
+    private final boolean[] emitted;   // handled during the current flush
+    private final int[] pending;       // slots with unsent transitions, oldest first
+    private final boolean[] isPending;
+    private int pendingCount = 0;
+
+    @Getter private int perSecond = 0;
+    @Getter private int perTick = 0;
+    private double tokens = 0.0;
+    private long refilledNanos = 0L;
+
+    public EventCoalescer(KeyState keys, int mouseButtons, CaptureMetrics metrics) {
+        this.keys = keys;
+        this.metrics = metrics;
+        int slots = keys.size() + mouseButtons;
+        serverDown = new boolean[slots];
+        localDown = new boolean[slots];
+        transitions = new int[slots];
+        timestamps = new long[slots];
+        emitted = new boolean[slots];
+        pending = new int[slots];
+        isPending = new boolean[slots];
+    }
+
+    /** A budget of 0 turns coalescing off. */
+    public void setBudget(int perSecond, int perTick) {
+        this.perSecond = Math.max(0, perSecond);
+        this.perTick = Math.max(0, perTick);
+        reset();
+    }
+
+    public boolean isEnabled() {
+        return perTick > 0 && perSecond > 0;
+    }
+
+    public boolean hasPending() {
+        return pendingCount > 0;
+    }
+
+    /** Coalesces a tick's events from {@code events} into {@code out}, which the caller sends. */
+    public void flush(java.util.List<InputEvent> events, java.util.List<InputEvent> out, long nowNanos) {
+        tokens = Math.min(perSecond, tokens + Math.max(0L, nowNanos - refilledNanos) * perSecond / 1_000_000_000.0);
+        refilledNanos = nowNanos;
+        int budget = (int) Math.min(perTick, Math.floor(tokens));
+
+        for (int i = 0; i < events.size(); i++) {
+            InputEvent event = events.get(i);
+            int slot = slotOf(event);
+            if (slot < 0) continue;
+            if (!isPending[slot]) {
+                isPending[slot] = true;
+                pending[pendingCount++] = slot;
+            }
+            transitions[slot]++;
+            localDown[slot] = event.action() == InputEvent.Action.PRESS;
+            timestamps[slot] = event.timestampNanos();
+        }
+
+        int spent = 0;
+        for (int i = 0; i < events.size(); i++) {
+            InputEvent event = events.get(i);
+            int slot = slotOf(event);
+            if (slot < 0) {
+                out.add(event); // outside the budget, a dropped sequence release would leave the server stuck
+            } else if (!emitted[slot]) {
+                emitted[slot] = true;
+                spent += emit(slot, budget - spent, out);
+            }
+        }
+        // Deferred from an earlier tick without new transitions since
+        for (int i = 0; i < pendingCount; i++) {
+            int slot = pending[i];
+            if (!emitted[slot]) {
+                emitted[slot] = true;
+                spent += emit(slot, budget - spent, out);
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            int slot = pending[i];
+            emitted[slot] = false;
+            if (transitions[slot] > 0) {
+                pending[kept++] = slot;
+            } else {
+                isPending[slot] = false;
+            }
+        }
+        pendingCount = kept;
+        tokens = Math.max(0.0, tokens - spent);
+    }
+
+    // Returns how many events were added
+    private int emit(int slot, int budget, java.util.List<InputEvent> out) {
+        int count = transitions[slot];
+        boolean from = serverDown[slot];
+        boolean to = localDown[slot];
+        int change = from != to ? 1 : 0;
+        int taps = (count - change) / 2;
+        // A key held before and after has to come up first, which uses one of its taps
+        int cost = change + (taps == 0 ? 0 : from && to ? (taps > 1 ? 3 : 2) : 1);
+
+        if (cost > budget) {
+            metrics.recordDropped(taps * 2);
+            taps = 0;
+            if (change > budget) {
+                transitions[slot] = change; // net change waits for budget
+                return 0;
+            }
+            cost = change;
+        }
+
+        long timestamp = timestamps[slot];
+        if (from && taps > 0) {
+            out.add(event(slot, InputEvent.Action.RELEASE, timestamp));
+            from = false;
+            if (to) taps--; // the final press completes one of them
+        }
+        if (taps > 0) {
+            out.add(tap(slot, taps, timestamp));
+        }
+        if (from != to) {
+            out.add(event(slot, to ? InputEvent.Action.PRESS : InputEvent.Action.RELEASE, timestamp));
+        }
+        metrics.recordCoalesced(Math.max(0, count - cost));
+        serverDown[slot] = to;
+        transitions[slot] = 0;
+        return cost;
+    }
+
+    private int slotOf(InputEvent event) {
+        return switch (event.kind()) {
+            case KEY -> keys.indexOf(event.code());
+            case MOUSE_BUTTON -> keys.size() + event.code();
+            default -> -1;
+        };
+    }
+
+    private InputEvent event(int slot, InputEvent.Action action, long timestampNanos) {
+        return slot < keys.size()
+                ? InputEvent.key(action, keys.keyCode(slot), timestampNanos)
+                : InputEvent.mouseButton(action, slot - keys.size(), timestampNanos);
+    }
+
+    // Pairs past the protocol limit add nothing a server could tell apart
+    private InputEvent tap(int slot, int count, long timestampNanos) {
+        count = Math.min(count, InputEvent.MAX_TAP_COUNT);
+        return slot < keys.size()
+                ? InputEvent.tap(InputEvent.Kind.KEY, keys.keyCode(slot), count, timestampNanos)
+                : InputEvent.tap(InputEvent.Kind.MOUSE_BUTTON, slot - keys.size(), count, timestampNanos);
+    }
+
+    /** The server no longer tracks this slot; forget it without sending anything. */
+    public void forget(int slot) {
+        serverDown[slot] = false;
+        localDown[slot] = false;
+        transitions[slot] = 0;
+    }
+
+    /** The server already knows this slot's state, e.g. from a STATE event; nothing is sent for it. */
+    public void assumeSent(int slot, boolean down) {
+        serverDown[slot] = down;
+        localDown[slot] = down;
+        transitions[slot] = 0;
+    }
+
+    public int mouseSlot(int button) {
+        return keys.size() + button;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(serverDown, false);
+        java.util.Arrays.fill(localDown, false);
+        java.util.Arrays.fill(transitions, 0);
+        java.util.Arrays.fill(emitted, false);
+        java.util.Arrays.fill(isPending, false);
+        pendingCount = 0;
+        tokens = perSecond;
+        refilledNanos = 0L;
+    }
+}
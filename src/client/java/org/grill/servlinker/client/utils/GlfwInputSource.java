@@ -0,0 +1,58 @@
+package org.grill.servlinker.client.utils;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.util.InputUtil;
+import org.lwjgl.glfw.GLFW;
+
+/** Reads the game window: polling goes through GLFW, callbacks come from {@link InputCallbackQueue}. */
+public class GlfwInputSource implements InputSource {
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public boolean isKeyDown(int keyCode) {
+        return InputUtil.isKeyPressed(window(), keyCode);
+    }
+
+    @Override
+    public boolean isMouseButtonDown(int button) {
+        return GLFW.glfwGetMouseButton(window(), button) == GLFW.GLFW_PRESS;
+    }
+
+    @Override
+    public void setCallbacksEnabled(boolean enabled) {
+        InputCallbackQueue.setEnabled(enabled);
+    }
+
+    @Override
+    public int drainCallbacks(Callback callback) {
+        while (!InputCallbackQueue.isEmpty()) {
+            callback.accept(InputCallbackQueue.type(), InputCallbackQueue.code(),
+                    InputCallbackQueue.pressed(), InputCallbackQueue.timestamp());
+            InputCallbackQueue.pop();
+        }
+        return InputCallbackQueue.takeDropped();
+    }
+
+    @Override
+    public void discardCallbacks() {
+        InputCallbackQueue.clear();
+        MouseMotionAccumulator.clear();
+    }
+
+    @Override
+    public void setMotionEnabled(boolean enabled) {
+        MouseMotionAccumulator.setEnabled(enabled);
+    }
+
+    @Override
+    public boolean drainMotion(double[] deltas) {
+        return MouseMotionAccumulator.take(deltas);
+    }
+
+    private static long window() {
+        return MinecraftClient.getInstance().getWindow().getHandle();
+    }
+}
@@ -0,0 +1,95 @@
+package org.grill.servlinker.client.utils;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Fixed-size ring of raw GLFW key and mouse-button callbacks.
+ * <p>
+ * GLFW delivers callbacks from {@code glfwPollEvents} on the render thread, which is also the
+ * thread running client ticks, so the ring needs no synchronisation. If it fills up between two
+ * ticks the oldest events are kept and {@link #takeDropped()} tells the consumer to resync by polling.
+ */
+public final class InputCallbackQueue {
+    public static final byte TYPE_KEY = 0;
+    public static final byte TYPE_MOUSE_BUTTON = 1;
+
+    private static final int CAPACITY = 256; // power of two
+    private static final int MASK = CAPACITY - 1;
+
+    private static final byte[] types = new byte[CAPACITY];
+    private static final int[] codes = new int[CAPACITY];
+    private static final boolean[] pressed = new boolean[CAPACITY];
+    private static final long[] timestamps = new long[CAPACITY];
+
+    private static int head = 0; // next slot to read
+    private static int tail = 0; // next slot to write
+    private static int dropped = 0; // events lost to a full ring since the last takeDropped()
+    private static boolean enabled = false;
+
+    private InputCallbackQueue() {}
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+        clear();
+    }
+
+    public static void onKey(int key, int action) {
+        if (action == GLFW.GLFW_REPEAT) return;
+        push(TYPE_KEY, key, action == GLFW.GLFW_PRESS);
+    }
+
+    public static void onMouseButton(int button, int action) {
+        push(TYPE_MOUSE_BUTTON, button, action == GLFW.GLFW_PRESS);
+    }
+
+    private static void push(byte type, int code, boolean down) {
+        if (!enabled) return;
+        if (tail - head == CAPACITY) {
+            dropped++;
+            return;
+        }
+        int slot = tail & MASK;
+        types[slot] = type;
+        codes[slot] = code;
+        pressed[slot] = down;
+        timestamps[slot] = System.nanoTime();
+        tail++;
+    }
+
+    public static boolean isEmpty() {
+        return head == tail;
+    }
+
+    /** Advances past the current head event; read it with the accessors first. */
+    public static void pop() {
+        head++;
+    }
+
+    public static byte type() {
+        return types[head & MASK];
+    }
+
+    public static int code() {
+        return codes[head & MASK];
+    }
+
+    public static boolean pressed() {
+        return pressed[head & MASK];
+    }
+
+    public static long timestamp() {
+        return timestamps[head & MASK];
+    }
+
+    /** Returns how many events were dropped since the last call, and resets the count. */
+    public static int takeDropped() {
+        int result = dropped;
+        dropped = 0;
+        return result;
+    }
+
+    public static void clear() {
+        head = tail = 0;
+        dropped = 0;
+    }
+}
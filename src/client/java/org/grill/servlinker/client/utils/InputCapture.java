@@ -1,61 +1,97 @@
 package org.grill.servlinker.client.utils;
 
 import lombok.Getter;
+import lombok.Setter;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
-import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.util.InputUtil;
+import net.minecraft.network.encoding.VarInts;
 import net.minecraft.text.Style;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 import org.grill.servlinker.Servlinker;
 import org.grill.servlinker.client.ServlinkerClient;
-import org.grill.servlinker.client.networking.KeyPressC2SPacket;
+import org.grill.servlinker.client.journal.InputJournal;
+import org.grill.servlinker.client.trace.CaptureTickEvent;
+import org.grill.servlinker.client.trace.InputTrace;
+import org.grill.servlinker.networking.Capabilities;
+import org.grill.servlinker.networking.ConfigS2CPacket;
+import org.grill.servlinker.networking.InputBatchC2SPacket;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.networking.InputEventC2SPacket;
+import org.grill.servlinker.networking.KeyDictionaryC2SPacket;
+import org.grill.servlinker.networking.KeyPressC2SPacket;
+import org.grill.servlinker.networking.SendPolicyS2CPacket;
+import org.grill.servlinker.networking.SubscriptionS2CPacket;
+import org.grill.servlinker.client.networking.WireFormat;
 import org.grill.servlinker.client.utils.DebugLogger;
 import org.lwjgl.glfw.GLFW;
 
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Set;
-
 public class InputCapture {
     @Getter private boolean capturing = true; // player can change this via keybinds
+    @Getter @Setter private WireFormat wireFormat = WireFormat.STRING; // server opts into BINARY during sync
+    @Getter @Setter private boolean batching = false; // one InputBatchC2SPacket per tick, BINARY only
+    @Getter private CaptureMode captureMode = CaptureMode.fromProperty();
+    @Getter @Setter private boolean sendingKeyNames = true; // false once the server holds our key dictionary
+    @Getter private boolean sendingMotion = true; // servers on the string handshake gate motion by subscription alone
+    @Getter @Setter private boolean sendingStateEvents = false; // suspend and resume with one STATE event each
+    @Getter private SuspendReason suspendReason = SuspendReason.NONE; // set every tick by CaptureScheduler
+    // Events are sent in capture order without delay; the server may treat events this close together as
+    // simultaneous and reorder them (e.g. modifiers first), so the value is advertised in the sync ack
+    @Getter private final int coalesceWindowMillis = Integer.getInteger("servlinker.coalesceWindowMs", 5);
+    // FRAME mode sampling interval, 0 samples every rendered frame
+    private long frameIntervalNanos = frameInterval(Integer.getInteger("servlinker.frameRate", 0));
+    private long lastFrameSampleNanos = 0L;
     private static final DebugLogger LOGGER = ServlinkerClient.LOGGER;
 
-    private final Set<Integer> pressedKeys = new HashSet<>();
-    private final java.util.List<Integer> keyPressOrder = new java.util.ArrayList<>(); // Track order of key presses
-    private final Set<Set<Integer>> activeSequences = new HashSet<>();
-    private final Set<Set<Integer>> brokenSequences = new HashSet<>();
-    private final java.util.Map<Set<Integer>, java.util.List<Integer>> sequenceOrderMap = new java.util.HashMap<>(); // Store order for each sequence
-
-    // Event buffering for proper modifier key ordering
-    private final Set<Integer> modifierKeys = Set.of(
-        GLFW.GLFW_KEY_LEFT_SHIFT, GLFW.GLFW_KEY_RIGHT_SHIFT,
-        GLFW.GLFW_KEY_LEFT_CONTROL, GLFW.GLFW_KEY_RIGHT_CONTROL,
-        GLFW.GLFW_KEY_LEFT_ALT, GLFW.GLFW_KEY_RIGHT_ALT,
-        GLFW.GLFW_KEY_LEFT_SUPER, GLFW.GLFW_KEY_RIGHT_SUPER
-    );
-    private final java.util.List<KeyEvent> eventBuffer = new java.util.ArrayList<>();
-    private int bufferDelay = 0;
-
-    private boolean leftMouseDown = false;
-    private boolean rightMouseDown = false;
-    private boolean middleMouseDown = false;
-    private boolean button4Down = false;
-    private boolean button5Down = false;
-
-    // Helper class for buffering key events
-    private static class KeyEvent {
-        final String action;
-        final int keyCode;
-        final boolean isModifier;
-        
-        KeyEvent(String action, int keyCode, boolean isModifier) {
-            this.action = action;
-            this.keyCode = keyCode;
-            this.isModifier = isModifier;
-        }
-    }
+    private final InputSource source;
+    private final PacketSink sink;
+    private final InputSource.Callback callbackHandler = this::applyCallback;
+
+    // Pressed keys and press order, as a bitset over dense key indices
+    private final KeyState keys = new KeyState(VALID_KEY_CODES);
+    private boolean keysChanged = false; // sequence state only needs re-evaluating after a key transition
+    private long lastKeyChangeNanos = 0L;
+    private int tickEventCount = 0; // events produced since the last tick ended, for CaptureTickEvent
+    @Getter private final CaptureMetrics metrics = new CaptureMetrics();
+    @Getter private final LatencyProbe latency = new LatencyProbe();
+    @Getter @Setter private InputJournal journal; // records every produced event while set, see JournalManager
+    @Getter private final InputSubscription subscription = new InputSubscription(keys);
+    private final ComboMatcher.Listener comboListener = this::sendComboEvent;
+    @Setter private ActionInput actionInput; // bindings for the actions the server declared, if any
+    private final ActionInput.Listener actionListener = this::sendActionEvent;
+    private static final ActionInput.Listener IGNORE_ACTIONS = (action, actionId, timestampNanos) -> { };
+
+    // Sequences are identified by their key bitmask, stored flat as KeyState.WORDS longs per slot
+    private static final int MAX_SEQUENCES = 32;
+    private final long[] activeMasks = new long[MAX_SEQUENCES * KeyState.WORDS];
+    private final int[] activeOrders = new int[MAX_SEQUENCES * VALID_KEY_CODES.length]; // press order per active sequence
+    private final int[] activeLengths = new int[MAX_SEQUENCES];
+    private int activeCount = 0;
+    private final long[] brokenMasks = new long[MAX_SEQUENCES * KeyState.WORDS];
+    private int brokenCount = 0;
+
+    // Events produced during the current tick while batching
+    private final java.util.List<InputEvent> pendingBatch = new java.util.ArrayList<>();
+    private final java.util.List<InputEvent> coalescedBatch = new java.util.ArrayList<>();
+    @Getter private final SendPolicy sendPolicy = new SendPolicy(); // lane per event class, from the server
+    private int pendingLane = SendPolicyS2CPacket.DEFERRED; // most urgent lane in pendingBatch
+    private int deferredTicks = 0; // ticks pendingBatch has held only DEFERRED events
+    private boolean inTick = false; // IMMEDIATE events captured by tick() wait for its flush at the end
+
+    private static final int[] MOUSE_BUTTONS = {
+            GLFW.GLFW_MOUSE_BUTTON_LEFT, GLFW.GLFW_MOUSE_BUTTON_RIGHT, GLFW.GLFW_MOUSE_BUTTON_MIDDLE,
+            GLFW.GLFW_MOUSE_BUTTON_4, GLFW.GLFW_MOUSE_BUTTON_5
+    };
+    private int mouseButtons = 0; // bit per GLFW button
+    // Movement since the last tick, and the fraction of a unit not sent yet so slow movement still adds up
+    private final double[] motionDeltas = new double[4];
+    private double motionRemainderX, motionRemainderY, scrollRemainderX, scrollRemainderY;
+    // Holds batches under the server's event budget, once one is advertised
+    private final EventCoalescer coalescer = new EventCoalescer(keys, MOUSE_BUTTONS.length, metrics);
+
+    // Translation key per dense key index, looked up once instead of on every event
+    private final String[] keyNames = new String[VALID_KEY_CODES.length];
 
     private static final int[] VALID_KEY_CODES = {
             // Modifier keys (CHECK THESE FIRST for proper sequence detection)
@@ -96,321 +132,703 @@ public class InputCapture {
     };
 
     public InputCapture() {
+        this(new GlfwInputSource(), ClientPlayNetworking::send);
+        register();
+    }
+
+    /**
+     * Creates a capture that is not hooked into client ticks; the owner drives it through {@link #tick()}.
+     */
+    public InputCapture(InputSource source, PacketSink sink) {
         // Test basic logging immediately
         LOGGER.info("InputCapture constructor called - initializing input capture system");
-        register();
+        this.source = source;
+        this.sink = sink;
+        for (int index = 0; index < VALID_KEY_CODES.length; index++) {
+            keyNames[index] = InputUtil.Type.KEYSYM.createFromCode(VALID_KEY_CODES[index]).getTranslationKey();
+        }
+        setCaptureMode(captureMode);
+        updateMotionCapture();
+    }
+
+    public KeyDictionaryC2SPacket createKeyDictionary() {
+        java.util.List<Integer> codes = new java.util.ArrayList<>(VALID_KEY_CODES.length);
+        for (int keyCode : VALID_KEY_CODES) {
+            codes.add(keyCode);
+        }
+        return new KeyDictionaryC2SPacket(codes, java.util.List.of(keyNames));
+    }
+
+    public void setCaptureMode(CaptureMode mode) {
+        captureMode = mode;
+        source.setCallbacksEnabled(mode == CaptureMode.CALLBACK && isActive());
+        LOGGER.info("Input capture mode: {}", mode);
     }
 
     private void register() {
-        System.out.println("InputCapture register() - SYSTEM.OUT TEST");
         LOGGER.info("Registering client tick events for InputCapture");
+        // Nothing on this path may allocate while input is unchanged, it runs every tick
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
-            // Only log every 60 ticks to avoid spam
-            if (client.world != null && client.world.getTime() % 60 == 0) {
-                System.out.println("Tick event fired - time: " + client.world.getTime());
-                LOGGER.info("Tick event fired - client.player: {}, capturing: {}", 
-                    client.player != null ? "exists" : "null", capturing);
+            setSuspendReason(CaptureScheduler.reasonFor(client));
+            tick();
+        });
+    }
+
+    private boolean isActive() {
+        return capturing && suspendReason == SuspendReason.NONE;
+    }
+
+    /**
+     * Suspends capture while input cannot matter, or resumes it with {@link SuspendReason#NONE}. A suspension the
+     * server can notice releases everything held, and resuming reports what is held now; with
+     * {@link Capabilities#STATE} each of these is a single STATE event instead of one event per key.
+     */
+    public void setSuspendReason(SuspendReason reason) {
+        if (reason == suspendReason) return;
+        boolean wasActive = isActive();
+        suspendReason = reason;
+        if (wasActive) {
+            suspend(reason.notifiesServer);
+        } else if (isActive()) {
+            resume();
+        }
+    }
+
+    private void suspend(boolean notifyServer) {
+        source.setCallbacksEnabled(false);
+        source.discardCallbacks();
+        updateMotionCapture();
+        if (!notifyServer) {
+            clearHeldState();
+            return;
+        }
+        long now = source.nanoTime();
+        if (sendingStateEvents) {
+            clearHeldState(); // STATE releases actions too
+            sendPacket(InputEvent.state(new int[0], 0, now));
+        } else {
+            if (actionInput != null) {
+                actionInput.releaseAll(actionListener, now);
+            }
+            for (int i = keys.pressedCount() - 1; i >= 0; i--) {
+                applyKeyState(keys.pressedAt(i), false, now);
             }
-            
-            // Comment out server checks for debugging
-            // if(!ServlinkerClient.serverHasPlugin) return;
-            // boolean connectedToMultiplayer = client.getNetworkHandler() != null && client.getCurrentServerEntry() != null;
-            // if (!capturing || !connectedToMultiplayer) return;
-            
-            if (client.player == null) {
-                LOGGER.debug("Skipping input capture - no player");
-                return;
+            for (int button = 0; button < MOUSE_BUTTONS.length; button++) {
+                applyMouseState(button, false, now);
             }
-            if (!capturing) {
-                LOGGER.debug("Skipping input capture - capturing disabled");
-                return;
+            if (subscription.isSequences() && subscription.getMatcher().isEmpty()) {
+                checkSequenceState();
             }
+        }
+        flushBatch();
+    }
 
-            if (client.world != null && client.world.getTime() % 60 == 0) {
-                LOGGER.info("Running input capture checks");
+    private void resume() {
+        source.discardCallbacks();
+        if (actionInput != null) {
+            actionInput.releaseAll(IGNORE_ACTIONS, 0L); // actions still held are pressed again by the next poll
+        }
+        source.setCallbacksEnabled(captureMode == CaptureMode.CALLBACK);
+        updateMotionCapture();
+        if (!sendingStateEvents) {
+            // Whatever is held goes out as presses, as if it had just been pressed
+            checkKeyboardState();
+            checkMouseState();
+            return;
+        }
+        // Taken over silently, the STATE event tells the server
+        for (int i = 0; i < subscription.getPollCount(); i++) {
+            int index = subscription.pollIndex(i);
+            if (source.isKeyDown(VALID_KEY_CODES[index]) && keys.press(index)) {
+                coalescer.assumeSent(index, true);
             }
-            checkKeyboardState(client);
-            processEventBuffer();
-            checkSequenceState(client);
-            checkMouseState(client);
-        });
+        }
+        for (int button = 0; button < MOUSE_BUTTONS.length; button++) {
+            if (subscription.isMouseButtonSubscribed(button) && source.isMouseButtonDown(button)) {
+                mouseButtons |= 1 << button;
+                coalescer.assumeSent(coalescer.mouseSlot(button), true);
+            }
+        }
+        int[] heldKeyCodes = new int[keys.pressedCount()];
+        for (int i = 0; i < heldKeyCodes.length; i++) {
+            heldKeyCodes[i] = keys.keyCode(keys.pressedAt(i));
+        }
+        sendPacket(InputEvent.state(heldKeyCodes, mouseButtons, source.nanoTime()));
+    }
+
+    /** Samples per second in FRAME mode; 0 or less samples on every rendered frame. */
+    public void setFrameRate(int samplesPerSecond) {
+        frameIntervalNanos = frameInterval(samplesPerSecond);
+    }
+
+    private static long frameInterval(int samplesPerSecond) {
+        return samplesPerSecond > 0 ? 1_000_000_000L / samplesPerSecond : 0L;
+    }
+
+    /**
+     * Called at the start of every rendered frame. In FRAME mode this samples keys and buttons with the
+     * frame's timestamp; in CALLBACK mode it applies queued callbacks while the send policy has an IMMEDIATE lane.
+     * An IMMEDIATE event sends the batch right away, everything else waits in it for {@link #tick()}.
+     */
+    public void onFrame() {
+        if (!isActive()) {
+            return;
+        }
+        if (captureMode == CaptureMode.CALLBACK && sendPolicy.isImmediate()) {
+            // IMMEDIATE events should not wait for the tick, so callbacks are applied every frame as well
+            drainCallbacks();
+            return;
+        }
+        if (captureMode != CaptureMode.FRAME) {
+            return;
+        }
+        long now = source.nanoTime();
+        if (frameIntervalNanos > 0 && now - lastFrameSampleNanos < frameIntervalNanos) {
+            return;
+        }
+        lastFrameSampleNanos = now;
+        checkKeyboardState();
+        // Overlaps that only last a few frames would be gone by the tick
+        if (subscription.isSequences() && subscription.getMatcher().isEmpty()) {
+            checkSequenceState();
+        }
+        checkMouseState();
+    }
+
+    /** Runs one pass of the capture pipeline: read input, update key and sequence state, send events. */
+    public void tick() {
+        if (!capturing) {
+            return;
+        }
+        if (suspendReason != SuspendReason.NONE) {
+            // Releases held back by the event budget still have to reach the server
+            if (coalescer.hasPending()) {
+                flushBatch();
+            }
+            return;
+        }
+
+        long tickStart = System.nanoTime();
+        CaptureTickEvent tickEvent = InputTrace.beginCaptureTick();
+        inTick = true;
+        if (captureMode == CaptureMode.CALLBACK) {
+            drainCallbacks();
+        } else if (captureMode == CaptureMode.POLLING) {
+            checkKeyboardState();
+        }
+        // Registered combos are matched as keys change; without any, fall back to reporting every overlap
+        if (subscription.isSequences() && subscription.getMatcher().isEmpty()) {
+            checkSequenceState();
+        }
+        if (captureMode == CaptureMode.POLLING) {
+            checkMouseState();
+        }
+        if (actionInput != null) {
+            actionInput.poll(actionListener, source.nanoTime());
+        }
+        checkMotion();
+        inTick = false;
+        flushDue();
+        if (tickEvent != null && tickEvent.shouldCommit()) {
+            tickEvent.mode = captureMode.name();
+            tickEvent.eventsDetected = tickEventCount;
+            tickEvent.keysHeld = keys.pressedCount();
+            tickEvent.commit();
+        }
+        tickEventCount = 0;
+        metrics.recordTick(System.nanoTime() - tickStart);
     }
 
     public void startCapturing() {
         capturing = true;
+        source.setCallbacksEnabled(captureMode == CaptureMode.CALLBACK && isActive());
+        updateMotionCapture();
     }
     public void stopCapturing() {
         capturing = false;
-        pressedKeys.clear();
-        keyPressOrder.clear();
-        activeSequences.clear();
-        brokenSequences.clear();
-        sequenceOrderMap.clear();
-        eventBuffer.clear();
-        bufferDelay = 0;
-        leftMouseDown = rightMouseDown = middleMouseDown = button4Down = button5Down = false;
-    }
-
-    private void checkKeyboardState(MinecraftClient client) {
-        long window = client.getWindow().getHandle();
-        LOGGER.debug("Checking keyboard state - window handle: {}, pressed keys: {}", window, pressedKeys.size());
-        
-        int checkedKeys = 0;
-        for (int keyCode : VALID_KEY_CODES) {
-            boolean pressed = InputUtil.isKeyPressed(window, keyCode);
-            if (pressed) {
-                checkedKeys++;
-                LOGGER.debug("Key {} is currently pressed", keyCode);
+        source.setCallbacksEnabled(false);
+        clearHeldState();
+        updateMotionCapture();
+    }
+
+    // Forgets held keys, buttons and sequences without telling the server
+    private void clearHeldState() {
+        keys.clear();
+        keysChanged = false;
+        activeCount = 0;
+        brokenCount = 0;
+        subscription.getMatcher().reset();
+        pendingBatch.clear();
+        pendingLane = SendPolicyS2CPacket.DEFERRED;
+        deferredTicks = 0;
+        coalescer.reset();
+        mouseButtons = 0;
+        if (actionInput != null) {
+            actionInput.releaseAll(IGNORE_ACTIONS, 0L);
+        }
+    }
+
+    /** Configures capture for the set the server picked in the handshake. */
+    public void applyConfig(ConfigS2CPacket config) {
+        int capabilities = config.capabilities();
+        wireFormat = Capabilities.has(capabilities, Capabilities.BINARY) ? WireFormat.BINARY : WireFormat.STRING;
+        batching = Capabilities.has(capabilities, Capabilities.BATCH);
+        if (Capabilities.has(capabilities, Capabilities.TAP)) {
+            setRateBudget(config.maxEventsPerSecond(), config.maxEventsPerTick());
+        } else {
+            setRateBudget(0, 0);
+        }
+        CaptureMode mode = CaptureMode.fromSamplingMode(config.samplingMode());
+        if (mode != null && mode != captureMode) {
+            setCaptureMode(mode);
+        }
+        if (mode == CaptureMode.FRAME) {
+            setFrameRate(config.frameRate());
+        }
+        setSendingMotion(Capabilities.has(capabilities, Capabilities.MOTION));
+        sendingStateEvents = Capabilities.has(capabilities, Capabilities.STATE);
+        latency.setEnabled(Capabilities.has(capabilities, Capabilities.LATENCY));
+        sendPolicy.reset(); // the server's policy, if any, follows the config
+    }
+
+    public void setSendingMotion(boolean value) {
+        sendingMotion = value;
+        updateMotionCapture();
+    }
+
+    /** Budget the server advertised during sync; only applies to batches, 0 turns it off. */
+    public void setRateBudget(int perSecond, int perTick) {
+        coalescer.setBudget(perSecond, perTick);
+    }
+
+    public boolean isRateLimited() {
+        return isBatched() && coalescer.isEnabled();
+    }
+
+    /** Sequences currently held: legacy overlaps plus registered combos. */
+    public int getActiveSequences() {
+        return activeCount + subscription.getMatcher().activeCount();
+    }
+
+    /** Sequences released but waiting for all their keys to go up before they can be restored. */
+    public int getBrokenSequences() {
+        return brokenCount + subscription.getMatcher().brokenCount();
+    }
+
+    public void applySubscription(SubscriptionS2CPacket packet) {
+        subscription.update(packet);
+        dropUnsubscribedState();
+        updateMotionCapture();
+    }
+
+    public void resetSubscription() {
+        subscription.subscribeAll();
+        updateMotionCapture();
+    }
+
+    private void updateMotionCapture() {
+        source.setMotionEnabled(isActive() && sendingMotion && subscription.isMotionSubscribed());
+        motionRemainderX = motionRemainderY = scrollRemainderX = scrollRemainderY = 0.0;
+    }
+
+    // The server no longer cares about these, forget them without sending releases
+    private void dropUnsubscribedState() {
+        for (int i = keys.pressedCount() - 1; i >= 0; i--) {
+            int index = keys.pressedAt(i);
+            if (!subscription.isKeySubscribed(index)) {
+                keys.release(index);
+                keysChanged = true;
+                coalescer.forget(index);
             }
-            
-            if (pressed && !pressedKeys.contains(keyCode)) {
-                pressedKeys.add(keyCode);
-                keyPressOrder.add(keyCode); // Track the order this key was pressed
-                bufferKeyEvent("PRESS", keyCode);
-            } else if (!pressed && pressedKeys.contains(keyCode)) {
-                pressedKeys.remove(keyCode);
-                keyPressOrder.remove(Integer.valueOf(keyCode)); // Remove from order tracking
-                bufferKeyEvent("RELEASE", keyCode);
+        }
+        for (int button = 0; button < MOUSE_BUTTONS.length; button++) {
+            if (!subscription.isMouseButtonSubscribed(button)) {
+                coalescer.forget(coalescer.mouseSlot(button));
             }
         }
-        
-        if (checkedKeys > 0) {
-            LOGGER.debug("Found {} currently pressed keys during check", checkedKeys);
+        mouseButtons &= subscription.getMouseButtons();
+        if (!subscription.isSequences()) {
+            activeCount = 0;
+            brokenCount = 0;
         }
     }
 
-    private void checkSequenceState(MinecraftClient client) {
-        LOGGER.debug("Checking sequence state. Pressed keys: {} Active sequences: {} Broken sequences: {}", 
-                    pressedKeys.size(), activeSequences.size(), brokenSequences.size());
-        
-        // Only detect sequences for 2+ keys - single keys should never be sequences
-        if (pressedKeys.size() >= 2) {
-            Set<Integer> currentCombination = new HashSet<>(pressedKeys);
-            LOGGER.debug("SEQUENCE: Checking combination: {} (size={})", currentCombination, currentCombination.size());
-
-            boolean isNewSequence = true;
-            for (Set<Integer> activeSeq : activeSequences) {
-                if (activeSeq.equals(currentCombination)) {
-                    isNewSequence = false;
-                    break;
-                }
+    // Applies the GLFW callbacks recorded since the last tick, in the order they happened
+    private void drainCallbacks() {
+        // Events were lost, reconcile against the real key state
+        int lost = source.drainCallbacks(callbackHandler);
+        if (lost > 0) {
+            metrics.recordDropped(lost);
+            LOGGER.warn("Input callback queue overflowed, resyncing by polling");
+            checkKeyboardState();
+            checkMouseState();
+        }
+    }
+
+    private void applyCallback(int type, int code, boolean down, long timestampNanos) {
+        if (type == InputCallbackQueue.TYPE_KEY) {
+            int index = keys.indexOf(code);
+            if (index >= 0 && subscription.isKeySubscribed(index)) {
+                applyKeyState(index, down, timestampNanos);
             }
-            
-            if (isNewSequence) {
-                boolean wasRestored = false;
-                LOGGER.debug("SEQUENCE: Checking for restoration. Current combination: {} Broken sequences: {}", 
-                            currentCombination, brokenSequences);
-                for (Set<Integer> brokenSeq : new HashSet<>(brokenSequences)) {
-                    LOGGER.debug("SEQUENCE: Comparing with broken sequence: {}", brokenSeq);
-                    if (brokenSeq.equals(currentCombination)) {
-                        brokenSequences.remove(brokenSeq);
-                        Set<Integer> restoredSequence = new HashSet<>(currentCombination);
-                        activeSequences.add(restoredSequence);
-                        
-                        // Restore the sequence order mapping by recreating it from current press order
-                        java.util.List<Integer> sequenceOrder = new java.util.ArrayList<>();
-                        for (Integer keyCode : keyPressOrder) {
-                            if (restoredSequence.contains(keyCode)) {
-                                sequenceOrder.add(keyCode);
-                            }
-                        }
-                        sequenceOrderMap.put(restoredSequence, sequenceOrder);
-                        
-                        LOGGER.debug("SEQUENCE: Restoring sequence: {} with order: {}", currentCombination, sequenceOrder);
-                        sendSequenceEvent("RESTORE", currentCombination);
-                        wasRestored = true;
-                        break;
-                    }
-                }
-                
-                if (!wasRestored) {
-                    Set<Integer> newSequence = new HashSet<>(currentCombination);
-                    activeSequences.add(newSequence);
-                    // Store the current press order for this sequence
-                    java.util.List<Integer> sequenceOrder = new java.util.ArrayList<>();
-                    for (Integer keyCode : keyPressOrder) {
-                        if (newSequence.contains(keyCode)) {
-                            sequenceOrder.add(keyCode);
-                        }
-                    }
-                    sequenceOrderMap.put(newSequence, sequenceOrder);
-                    LOGGER.debug("SEQUENCE: New sequence detected: {} with order: {}", currentCombination, sequenceOrder);
-                    sendSequenceEvent("PRESS", currentCombination);
+        } else if (code >= 0 && code < MOUSE_BUTTONS.length && subscription.isMouseButtonSubscribed(code)) {
+            applyMouseState(code, down, timestampNanos);
+        }
+    }
+
+    private void applyKeyState(int index, boolean pressed, long timestampNanos) {
+        if (pressed ? keys.press(index) : keys.release(index)) {
+            keysChanged = true;
+            lastKeyChangeNanos = timestampNanos;
+            sendKeyEvent(pressed ? InputEvent.Action.PRESS : InputEvent.Action.RELEASE, keys.keyCode(index), timestampNanos);
+            ComboMatcher matcher = subscription.getMatcher();
+            if (subscription.isSequences() && !matcher.isEmpty()) {
+                if (pressed) {
+                    matcher.onPress(index, timestampNanos, comboListener);
                 } else {
-                    LOGGER.debug("SEQUENCE: Restoration completed");
+                    matcher.onRelease(index, timestampNanos, comboListener);
                 }
             }
         }
+    }
 
-        // Check for broken sequences (when some keys from a sequence are released)
-        for (Set<Integer> activeSeq : new HashSet<>(activeSequences)) {
-            if (!pressedKeys.containsAll(activeSeq)) {
-                activeSequences.remove(activeSeq);
-                LOGGER.debug("SEQUENCE: Breaking sequence: {} (remaining keys: {})", activeSeq, pressedKeys);
-                sendSequenceEvent("RELEASE", activeSeq);
-                
-                // Only add to broken sequences if it was a multi-key sequence
-                if (activeSeq.size() >= 2) {
-                    brokenSequences.add(activeSeq);
-                    LOGGER.debug("SEQUENCE: Added to broken sequences: {}", activeSeq);
-                } else {
-                    LOGGER.debug("SEQUENCE: Single key sequence, not adding to broken sequences");
+    private void applyMouseState(int button, boolean down, long timestampNanos) {
+        int bit = 1 << button;
+        if (((mouseButtons & bit) != 0) != down) {
+            mouseButtons ^= bit;
+            sendMouseEvent(button, down, timestampNanos);
+        }
+    }
+
+    private void checkKeyboardState() {
+        long now = source.nanoTime();
+        for (int i = 0; i < subscription.getPollCount(); i++) {
+            int index = subscription.pollIndex(i);
+            applyKeyState(index, source.isKeyDown(VALID_KEY_CODES[index]), now);
+        }
+    }
+
+    private void checkSequenceState() {
+        if (!keysChanged) {
+            return;
+        }
+        keysChanged = false;
+
+        // Only detect sequences for 2+ keys - single keys should never be sequences
+        if (keys.pressedCount() >= 2 && findPressedMask(activeMasks, activeCount) < 0) {
+            int broken = findPressedMask(brokenMasks, brokenCount);
+            if (broken >= 0) {
+                removeMask(brokenMasks, broken, --brokenCount);
+            }
+            if (activeCount < MAX_SEQUENCES) {
+                int slot = activeCount++;
+                keys.copyPressedTo(activeMasks, slot * KeyState.WORDS);
+                // Store the current press order for this sequence
+                int base = slot * VALID_KEY_CODES.length;
+                for (int i = 0; i < keys.pressedCount(); i++) {
+                    activeOrders[base + i] = keys.pressedAt(i);
                 }
-                
-                // Clean up the sequence order mapping
-                sequenceOrderMap.remove(activeSeq);
+                activeLengths[slot] = keys.pressedCount();
+                sendSequenceEvent(broken >= 0 ? InputEvent.Action.RESTORE : InputEvent.Action.PRESS, slot);
+            } else {
+                metrics.recordDropped(1);
+                LOGGER.warn("SEQUENCE: Too many active sequences, ignoring new combination");
+            }
+        }
+
+        // Check for broken sequences (when some keys from a sequence are released)
+        for (int slot = activeCount - 1; slot >= 0; slot--) {
+            int offset = slot * KeyState.WORDS;
+            if (keys.containsAll(activeMasks, offset)) {
+                continue;
+            }
+            sendSequenceEvent(InputEvent.Action.RELEASE, slot);
+            if (brokenCount < MAX_SEQUENCES && findMask(brokenMasks, brokenCount, activeMasks, offset) < 0) {
+                System.arraycopy(activeMasks, offset, brokenMasks, brokenCount++ * KeyState.WORDS, KeyState.WORDS);
+            }
+
+            // Swap the last active sequence into this slot
+            int last = --activeCount;
+            if (slot != last) {
+                System.arraycopy(activeMasks, last * KeyState.WORDS, activeMasks, offset, KeyState.WORDS);
+                System.arraycopy(activeOrders, last * VALID_KEY_CODES.length, activeOrders, slot * VALID_KEY_CODES.length, activeLengths[last]);
+                activeLengths[slot] = activeLengths[last];
             }
         }
 
         // Clean up broken sequences when no keys from them are still pressed
-        for (Set<Integer> brokenSeq : new HashSet<>(brokenSequences)) {
-            boolean anyKeyStillPressed = false;
-            for (Integer key : brokenSeq) {
-                if (pressedKeys.contains(key)) {
-                    anyKeyStillPressed = true;
-                    break;
-                }
+        for (int slot = brokenCount - 1; slot >= 0; slot--) {
+            if (!keys.containsAny(brokenMasks, slot * KeyState.WORDS)) {
+                removeMask(brokenMasks, slot, --brokenCount);
             }
-            if (!anyKeyStillPressed) {
-                LOGGER.debug("SEQUENCE: Cleaning up broken sequence: {}", brokenSeq);
-                brokenSequences.remove(brokenSeq);
+        }
+    }
+
+    private int findPressedMask(long[] masks, int count) {
+        for (int slot = 0; slot < count; slot++) {
+            if (keys.pressedEquals(masks, slot * KeyState.WORDS)) return slot;
+        }
+        return -1;
+    }
+
+    private static int findMask(long[] masks, int count, long[] mask, int offset) {
+        outer:
+        for (int slot = 0; slot < count; slot++) {
+            for (int w = 0; w < KeyState.WORDS; w++) {
+                if (masks[slot * KeyState.WORDS + w] != mask[offset + w]) continue outer;
             }
+            return slot;
         }
+        return -1;
     }
 
-    private void checkMouseState(MinecraftClient client) {
-        long window = client.getWindow().getHandle();
+    // Overwrites slot with the mask at last; the caller has already decremented its count
+    private static void removeMask(long[] masks, int slot, int last) {
+        if (slot != last) {
+            System.arraycopy(masks, last * KeyState.WORDS, masks, slot * KeyState.WORDS, KeyState.WORDS);
+        }
+    }
 
-        boolean leftDown = GLFW.glfwGetMouseButton(window, GLFW.GLFW_MOUSE_BUTTON_LEFT) == GLFW.GLFW_PRESS;
-        boolean rightDown = GLFW.glfwGetMouseButton(window, GLFW.GLFW_MOUSE_BUTTON_RIGHT) == GLFW.GLFW_PRESS;
-        boolean middleDown = GLFW.glfwGetMouseButton(window, GLFW.GLFW_MOUSE_BUTTON_MIDDLE) == GLFW.GLFW_PRESS;
-        boolean button4Now = GLFW.glfwGetMouseButton(window, GLFW.GLFW_MOUSE_BUTTON_4) == GLFW.GLFW_PRESS;
-        boolean button5Now = GLFW.glfwGetMouseButton(window, GLFW.GLFW_MOUSE_BUTTON_5) == GLFW.GLFW_PRESS;
+    private void checkMouseState() {
+        long now = source.nanoTime();
+        for (int button : MOUSE_BUTTONS) {
+            if (subscription.isMouseButtonSubscribed(button)) {
+                applyMouseState(button, source.isMouseButtonDown(button), now);
+            }
+        }
+    }
 
-        if (leftDown != leftMouseDown) {
-            leftMouseDown = leftDown;
-            sendMouseEvent("LEFT", leftMouseDown ? "PRESS" : "RELEASE");
+    // One MOTION and one SCROLL event per tick at most, and none for ticks that round to no movement
+    private void checkMotion() {
+        if (!sendingMotion || !subscription.isMotionSubscribed() || !source.drainMotion(motionDeltas)) {
+            return;
         }
-        if (rightDown != rightMouseDown) {
-            rightMouseDown = rightDown;
-            sendMouseEvent("RIGHT", rightMouseDown ? "PRESS" : "RELEASE");
+        if (wireFormat != WireFormat.BINARY) {
+            return; // the string format has no delta events
         }
-        if (middleDown != middleMouseDown) {
-            middleMouseDown = middleDown;
-            sendMouseEvent("MIDDLE", middleMouseDown ? "PRESS" : "RELEASE");
+        long now = source.nanoTime();
+        float motion = subscription.getMotionResolution();
+        if (motion > 0f) {
+            motionRemainderX += motionDeltas[0] / motion;
+            motionRemainderY += motionDeltas[1] / motion;
+            int dx = (int) motionRemainderX;
+            int dy = (int) motionRemainderY;
+            motionRemainderX -= dx;
+            motionRemainderY -= dy;
+            if (dx != 0 || dy != 0) {
+                sendPacket(InputEvent.motion(dx, dy, now));
+            }
         }
-        if (button4Now != button4Down) {
-            button4Down = button4Now;
-            sendMouseEvent("BUTTON_4", button4Down ? "PRESS" : "RELEASE");
+        float scroll = subscription.getScrollResolution();
+        if (scroll > 0f) {
+            scrollRemainderX += motionDeltas[2] / scroll;
+            scrollRemainderY += motionDeltas[3] / scroll;
+            int dx = (int) scrollRemainderX;
+            int dy = (int) scrollRemainderY;
+            scrollRemainderX -= dx;
+            scrollRemainderY -= dy;
+            if (dx != 0 || dy != 0) {
+                sendPacket(InputEvent.scroll(dx, dy, now));
+            }
         }
-        if (button5Now != button5Down) {
-            button5Down = button5Now;
-            sendMouseEvent("BUTTON_5", button5Down ? "PRESS" : "RELEASE");
+    }
+
+    private void sendKeyEvent(InputEvent.Action action, int keyCode, long timestampNanos) {
+        sendPacket(InputEvent.key(action, keyCode, timestampNanos));
+    }
+    
+    private void sendSequenceEvent(InputEvent.Action action, int slot) {
+        int base = slot * VALID_KEY_CODES.length;
+        int[] keyCodes = new int[activeLengths[slot]];
+        for (int i = 0; i < keyCodes.length; i++) {
+            keyCodes[i] = keys.keyCode(activeOrders[base + i]);
         }
+        InputTrace.sequenceTransition(action, keyCodes, false);
+        sendPacket(InputEvent.sequence(action, keyCodes, lastKeyChangeNanos));
+    }
+
+    private void sendComboEvent(InputEvent.Action action, int[] keyCodes, long timestampNanos) {
+        InputTrace.sequenceTransition(action, keyCodes, true);
+        sendPacket(InputEvent.sequence(action, keyCodes, timestampNanos));
+    }
+
+    private void sendActionEvent(InputEvent.Action action, int actionId, long timestampNanos) {
+        sendPacket(InputEvent.action(action, actionId, timestampNanos));
     }
 
-    private void bufferKeyEvent(String action, int keyCode) {
-        boolean isModifier = modifierKeys.contains(keyCode);
-        String keyName = InputUtil.Type.KEYSYM.createFromCode(keyCode).getTranslationKey();
-        
-        LOGGER.debug("BUFFER: {} {} ({}) isModifier={} bufferSize={} delay={}", 
-                    action, keyCode, keyName.replace("key.keyboard.", ""), 
-                    isModifier, eventBuffer.size(), bufferDelay);
-        
-        eventBuffer.add(new KeyEvent(action, keyCode, isModifier));
-        
-        // If we detect any modifier key events, delay the buffer processing
-        if (isModifier && "PRESS".equals(action)) {
-            bufferDelay = 3; // Wait 3 ticks to ensure proper ordering
-            LOGGER.debug("BUFFER: Set delay to 3 for modifier key");
+    private void sendMouseEvent(int button, boolean down, long timestampNanos) {
+        sendPacket(InputEvent.mouseButton(down ? InputEvent.Action.PRESS : InputEvent.Action.RELEASE, button, timestampNanos));
+    }
+
+    private void sendPacket(InputEvent event) {
+        tickEventCount++;
+        metrics.recordEvent(event.kind());
+        if (journal != null) {
+            record(event);
+        }
+        // Frame samples join the batch too; its send policy lane decides whether it goes now, at the tick or later
+        if (isBatched() || captureMode == CaptureMode.FRAME) {
+            pendingBatch.add(event);
+            int lane = sendPolicy.laneOf(event);
+            if (lane < pendingLane) {
+                pendingLane = lane;
+            }
+            // Captured between ticks, by a frame sample or a callback drained on a frame
+            if (lane == SendPolicyS2CPacket.IMMEDIATE && !inTick) {
+                flushBatch();
+            }
+        } else {
+            sendSingle(event);
         }
     }
 
-    private void processEventBuffer() {
-        if (eventBuffer.isEmpty()) {
-            return;
+    /** Sends everything captured so far without waiting for the tick, e.g. before a toggle packet. */
+    public void flush() {
+        if (!inTick) {
+            flushBatch();
         }
+    }
 
-        // If we have a buffer delay, count it down
-        if (bufferDelay > 0) {
-            LOGGER.debug("BUFFER: Waiting, delay={} bufferSize={}", bufferDelay, eventBuffer.size());
-            bufferDelay--;
+    // End of tick: DEFERRED events wait up to the policy's deferTicks unless something more urgent joined them
+    private void flushDue() {
+        if (pendingLane == SendPolicyS2CPacket.DEFERRED && !pendingBatch.isEmpty() && !coalescer.hasPending()
+                && ++deferredTicks < sendPolicy.getDeferTicks()) {
             return;
         }
+        flushBatch();
+    }
 
-        LOGGER.debug("BUFFER: Processing {} events", eventBuffer.size());
+    private void record(InputEvent event) {
+        try {
+            journal.append(event);
+        } catch (java.io.IOException e) {
+            LOGGER.warn("Input journal {} failed, recording stopped: {}", journal.getPath(), e.getMessage());
+            try {
+                journal.close();
+            } catch (java.io.IOException ignored) {
+                // Already failing, the first error was logged
+            }
+            journal = null;
+        }
+    }
 
-        // Sort events: modifiers first, then others
-        eventBuffer.sort((a, b) -> {
-            if (a.isModifier && !b.isModifier) return -1;
-            if (!a.isModifier && b.isModifier) return 1;
-            return 0;
-        });
+    private boolean isBatched() {
+        return wireFormat == WireFormat.BINARY && batching;
+    }
 
-        // Send all buffered events
-        for (KeyEvent event : eventBuffer) {
-            String keyName = InputUtil.Type.KEYSYM.createFromCode(event.keyCode).getTranslationKey();
-            LOGGER.debug("BUFFER: Sending {} {} ({}) isModifier={}", 
-                        event.action, event.keyCode, keyName.replace("key.keyboard.", ""), event.isModifier);
-            sendKeyEvent(event.action, event.keyCode);
+    private void sendSingle(InputEvent event) {
+        long now = source.nanoTime();
+        if (wireFormat == WireFormat.BINARY) {
+            sink.send(new InputEventC2SPacket(event));
+            packetSent("input_event", 1, event.encodedSize(now));
+        } else {
+            String message = toLegacyMessage(event);
+            sink.send(new KeyPressC2SPacket(message));
+            // Legacy messages are ASCII, so chars are bytes
+            packetSent("keypress", 1, VarInts.getSizeInBytes(message.length()) + message.length());
         }
-        
-        eventBuffer.clear();
+        latency.recordSent(event, now);
+        latency.afterPacket(sink, now - event.timestampNanos());
     }
 
-    private void sendKeyEvent(String action, int keyCode) {
-        String keyName = InputUtil.Type.KEYSYM.createFromCode(keyCode).getTranslationKey();
-        String single_key = "KEY|" + action + "|" + keyCode + "|" + keyName;
-        
-        // Console debug
-        LOGGER.debug("KEY EVENT: {} {} ({})", action, keyCode, keyName.replace("key.keyboard.", ""));
-        
-        sendPacket(single_key);
-    }
-    
-    private void sendSequenceEvent(String action, Set<Integer> keyCombination) {
-        StringBuilder keyCodesBuilder = new StringBuilder();
-        StringBuilder keyNamesBuilder = new StringBuilder();
-        
-        java.util.List<Integer> orderedKeys = new java.util.ArrayList<>();
-        
-        // Use stored sequence order if available (for releases), otherwise use current press order
-        java.util.List<Integer> storedOrder = sequenceOrderMap.get(keyCombination);
-        if (storedOrder != null) {
-            orderedKeys.addAll(storedOrder);
+    private void flushBatch() {
+        pendingLane = SendPolicyS2CPacket.DEFERRED;
+        deferredTicks = 0;
+        if (!isBatched()) {
+            for (int i = 0; i < pendingBatch.size(); i++) {
+                sendSingle(pendingBatch.get(i));
+            }
+            pendingBatch.clear();
+            return;
+        }
+        long now = source.nanoTime();
+        java.util.List<InputEvent> events = pendingBatch;
+        if (isRateLimited() && (!pendingBatch.isEmpty() || coalescer.hasPending())) {
+            coalescer.flush(pendingBatch, coalescedBatch, now);
+            pendingBatch.clear();
+            events = coalescedBatch;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        long oldest = now;
+        for (int i = 0; i < events.size(); i++) {
+            latency.recordSent(events.get(i), now);
+            oldest = Math.min(oldest, events.get(i).timestampNanos());
+        }
+        if (events.size() == 1) {
+            sink.send(new InputEventC2SPacket(events.get(0)));
+            packetSent("input_event", 1, events.get(0).encodedSize(now));
         } else {
-            // Fallback to current press order for new sequences
-            for (Integer keyCode : keyPressOrder) {
-                if (keyCombination.contains(keyCode)) {
-                    orderedKeys.add(keyCode);
+            for (int from = 0; from < events.size(); from += InputBatchC2SPacket.MAX_EVENTS) {
+                int to = Math.min(events.size(), from + InputBatchC2SPacket.MAX_EVENTS);
+                // Copy, the payload may be encoded after this tick has moved on
+                sink.send(new InputBatchC2SPacket(java.util.List.copyOf(events.subList(from, to))));
+                int size = VarInts.getSizeInBytes(to - from);
+                for (int i = from; i < to; i++) {
+                    size += events.get(i).encodedSize(now);
                 }
+                packetSent("input_batch", to - from, size);
             }
         }
-        
-        for (int i = 0; i < orderedKeys.size(); i++) {
-            int keyCode = orderedKeys.get(i);
-            String keyName = InputUtil.Type.KEYSYM.createFromCode(keyCode).getTranslationKey();
-            
-            if (i > 0) {
-                keyCodesBuilder.append("+");
-                keyNamesBuilder.append("+");
+        latency.afterPacket(sink, now - oldest);
+        events.clear();
+    }
+
+    private void packetSent(String payload, int events, int size) {
+        metrics.recordPacket(events, size);
+        InputTrace.packetSent(payload, events, size);
+    }
+
+    // Pipe-delimited form understood by servers that have not opted into the binary format.
+    // Key names are dropped once the server has our key dictionary: KEY|PRESS|65 instead of KEY|PRESS|65|key.keyboard.a
+    private String toLegacyMessage(InputEvent event) {
+        switch (event.kind()) {
+            case KEY:
+                if (!sendingKeyNames) {
+                    return "KEY|" + event.action() + "|" + event.code();
+                }
+                return "KEY|" + event.action() + "|" + event.code() + "|" + keyName(event.code());
+            case SEQUENCE: {
+                if (!sendingKeyNames) {
+                    StringBuilder builder = new StringBuilder("SEQ|").append(event.action()).append('|');
+                    int[] codes = event.codes();
+                    for (int i = 0; i < codes.length; i++) {
+                        if (i > 0) builder.append('+');
+                        builder.append(codes[i]);
+                    }
+                    return builder.toString();
+                }
+                StringBuilder keyCodesBuilder = new StringBuilder();
+                StringBuilder keyNamesBuilder = new StringBuilder();
+                int[] codes = event.codes();
+                for (int i = 0; i < codes.length; i++) {
+                    if (i > 0) {
+                        keyCodesBuilder.append("+");
+                        keyNamesBuilder.append("+");
+                    }
+                    keyCodesBuilder.append(codes[i]);
+                    keyNamesBuilder.append(keyName(codes[i]));
+                }
+                return "SEQ|" + event.action() + "|" + keyCodesBuilder + "|" + keyNamesBuilder;
             }
-            keyCodesBuilder.append(keyCode);
-            keyNamesBuilder.append(keyName);
+            default:
+                return "MOUSE_BUTTON|" + mouseButtonName(event.code()) + "|" + event.action();
         }
-        
-        String sequenceMsg = "SEQ|" + action + "|" + keyCodesBuilder.toString() + "|" + keyNamesBuilder.toString();
-        LOGGER.debug("Sending sequence event: {}", sequenceMsg);
-        sendPacket(sequenceMsg);
     }
 
-    private void sendMouseEvent(String button, String action) {
-        String msg = "MOUSE_BUTTON|" + button + "|" + action;
-        sendPacket(msg);
+    private String keyName(int keyCode) {
+        int index = keys.indexOf(keyCode);
+        return index >= 0 ? keyNames[index] : InputUtil.Type.KEYSYM.createFromCode(keyCode).getTranslationKey();
     }
 
-    private static void sendPacket(String message) {
-        LOGGER.debug("Sending packet: {}", message);
-        ClientPlayNetworking.send(new KeyPressC2SPacket(message));
+    private static String mouseButtonName(int button) {
+        switch (button) {
+            case GLFW.GLFW_MOUSE_BUTTON_LEFT: return "LEFT";
+            case GLFW.GLFW_MOUSE_BUTTON_RIGHT: return "RIGHT";
+            case GLFW.GLFW_MOUSE_BUTTON_MIDDLE: return "MIDDLE";
+            case GLFW.GLFW_MOUSE_BUTTON_4: return "BUTTON_4";
+            default: return "BUTTON_5";
+        }
     }
 }
@@ -0,0 +1,42 @@
+package org.grill.servlinker.client.utils;
+
+/**
+ * Where {@link InputCapture} reads raw input from. The game uses {@link GlfwInputSource}; benchmarks and
+ * tools can drive the capture pipeline with recorded or synthetic input instead of a live window.
+ */
+public interface InputSource {
+    long nanoTime();
+
+    boolean isKeyDown(int keyCode);
+
+    boolean isMouseButtonDown(int button);
+
+    /** Starts or stops recording callbacks; either way anything recorded so far is discarded. */
+    void setCallbacksEnabled(boolean enabled);
+
+    /**
+     * Delivers the callbacks recorded since the last drain, oldest first.
+     *
+     * @return how many callbacks were lost since the last drain; if any, the caller should resync by polling
+     */
+    int drainCallbacks(Callback callback);
+
+    void discardCallbacks();
+
+    /** Starts or stops accumulating cursor and scroll movement, discarding what was accumulated. */
+    void setMotionEnabled(boolean enabled);
+
+    /**
+     * Writes the movement since the last drain into {@code deltas} as {motionX, motionY, scrollX, scrollY},
+     * in screen pixels and scroll steps.
+     *
+     * @return false, leaving {@code deltas} untouched, if nothing moved
+     */
+    boolean drainMotion(double[] deltas);
+
+    @FunctionalInterface
+    interface Callback {
+        /** @param type {@link InputCallbackQueue#TYPE_KEY} or {@link InputCallbackQueue#TYPE_MOUSE_BUTTON} */
+        void accept(int type, int code, boolean pressed, long timestampNanos);
+    }
+}
@@ -0,0 +1,104 @@
+package org.grill.servlinker.client.utils;
+
+import lombok.Getter;
+import org.grill.servlinker.networking.SubscriptionS2CPacket;
+
+/**
+ * Which keys, combos and mouse buttons the server asked for, in {@link KeyState} dense indices.
+ * Everything outside it is neither polled nor sent.
+ */
+public final class InputSubscription {
+    private static final int ALL_MOUSE_BUTTONS = 0b11111;
+
+    private final KeyState keys;
+    private final long[] keyMask = new long[KeyState.WORDS];
+    private final int[] pollIndices; // subscribed dense indices, so polling skips the rest
+    @Getter private int pollCount;
+    @Getter private ComboMatcher matcher;
+    @Getter private int mouseButtons;
+    @Getter private boolean sequences;
+    @Getter private float motionResolution; // pixels per MOTION unit, 0 when not wanted
+    @Getter private float scrollResolution; // scroll steps per SCROLL unit, 0 when not wanted
+
+    public InputSubscription(KeyState keys) {
+        this.keys = keys;
+        this.pollIndices = new int[keys.size()];
+        subscribeAll();
+    }
+
+    public void subscribeAll() {
+        java.util.Arrays.fill(keyMask, 0L);
+        pollCount = 0;
+        for (int index = 0; index < keys.size(); index++) {
+            addKey(index);
+        }
+        matcher = ComboMatcher.compile(keys, java.util.List.of(), java.util.List.of());
+        mouseButtons = ALL_MOUSE_BUTTONS;
+        sequences = true;
+        motionResolution = 0f; // high rate, only sent when asked for
+        scrollResolution = 0f;
+    }
+
+    public void update(SubscriptionS2CPacket packet) {
+        if (packet.allKeys()) {
+            subscribeAll();
+        } else {
+            java.util.Arrays.fill(keyMask, 0L);
+            pollCount = 0;
+            for (int keyCode : packet.keyCodes()) {
+                int index = keys.indexOf(keyCode);
+                if (index >= 0 && !isKeySubscribed(index)) {
+                    addKey(index);
+                }
+            }
+        }
+
+        matcher = ComboMatcher.compile(keys, toIndices(packet.chords()), toIndices(packet.ordered()));
+
+        mouseButtons = packet.mouseButtons() & ALL_MOUSE_BUTTONS;
+        sequences = packet.sequences();
+        motionResolution = packet.motionResolution();
+        scrollResolution = packet.scrollResolution();
+    }
+
+    // Drops combos with untracked keys; a combo implies interest in its keys
+    private java.util.List<int[]> toIndices(java.util.List<int[]> combos) {
+        java.util.List<int[]> result = new java.util.ArrayList<>(combos.size());
+        outer:
+        for (int[] combo : combos) {
+            int[] indices = new int[combo.length];
+            for (int i = 0; i < combo.length; i++) {
+                indices[i] = keys.indexOf(combo[i]);
+                if (indices[i] < 0) continue outer;
+            }
+            for (int index : indices) {
+                if (!isKeySubscribed(index)) {
+                    addKey(index);
+                }
+            }
+            result.add(indices);
+        }
+        return result;
+    }
+
+    private void addKey(int index) {
+        keyMask[index >>> 6] |= 1L << index;
+        pollIndices[pollCount++] = index;
+    }
+
+    public boolean isKeySubscribed(int index) {
+        return KeyState.maskContains(keyMask, 0, index);
+    }
+
+    public int pollIndex(int i) {
+        return pollIndices[i];
+    }
+
+    public boolean isMotionSubscribed() {
+        return motionResolution > 0f || scrollResolution > 0f;
+    }
+
+    public boolean isMouseButtonSubscribed(int button) {
+        return (mouseButtons & (1 << button)) != 0;
+    }
+}
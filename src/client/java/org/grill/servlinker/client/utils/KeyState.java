@@ -0,0 +1,116 @@
+package org.grill.servlinker.client.utils;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Allocation-free pressed-key state.
+ * <p>
+ * Every tracked GLFW key code gets a dense index, pressed keys are a bitset over those indices and
+ * chords are compared as bitmasks of {@link #WORDS} longs. Press order is kept in a small int array
+ * since only a handful of keys are ever held at once.
+ */
+public final class KeyState {
+    public static final int WORDS = 2; // 128 dense slots, VALID_KEY_CODES has under 100 keys
+
+    private final int[] keyCodes;  // dense index -> GLFW key code
+    private final int[] indexOf = new int[GLFW.GLFW_KEY_LAST + 1]; // GLFW key code -> dense index, -1 if untracked
+    private final long[] pressed = new long[WORDS];
+    private final int[] order;     // dense indices in press order
+    private int orderCount = 0;
+
+    public KeyState(int[] trackedKeyCodes) {
+        if (trackedKeyCodes.length > WORDS * 64) {
+            throw new IllegalArgumentException("Too many tracked keys: " + trackedKeyCodes.length);
+        }
+        keyCodes = trackedKeyCodes.clone();
+        order = new int[keyCodes.length];
+        java.util.Arrays.fill(indexOf, -1);
+        for (int i = 0; i < keyCodes.length; i++) {
+            indexOf[keyCodes[i]] = i;
+        }
+    }
+
+    public int size() {
+        return keyCodes.length;
+    }
+
+    public int indexOf(int keyCode) {
+        return keyCode >= 0 && keyCode < indexOf.length ? indexOf[keyCode] : -1;
+    }
+
+    public int keyCode(int index) {
+        return keyCodes[index];
+    }
+
+    public boolean isPressed(int index) {
+        return (pressed[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** Marks the key as pressed, returns false if it already was. */
+    public boolean press(int index) {
+        if (isPressed(index)) return false;
+        pressed[index >>> 6] |= 1L << index;
+        order[orderCount++] = index;
+        return true;
+    }
+
+    /** Marks the key as released, returns false if it was not pressed. */
+    public boolean release(int index) {
+        if (!isPressed(index)) return false;
+        pressed[index >>> 6] &= ~(1L << index);
+        for (int i = 0; i < orderCount; i++) {
+            if (order[i] == index) {
+                System.arraycopy(order, i + 1, order, i, orderCount - i - 1);
+                orderCount--;
+                break;
+            }
+        }
+        return true;
+    }
+
+    public int pressedCount() {
+        return orderCount;
+    }
+
+    /** Dense index of the i-th held key in press order. */
+    public int pressedAt(int i) {
+        return order[i];
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(pressed, 0L);
+        orderCount = 0;
+    }
+
+    /** Copies the pressed bitset into {@code dst} at {@code offset}. */
+    public void copyPressedTo(long[] dst, int offset) {
+        System.arraycopy(pressed, 0, dst, offset, WORDS);
+    }
+
+    public boolean pressedEquals(long[] mask, int offset) {
+        for (int w = 0; w < WORDS; w++) {
+            if (pressed[w] != mask[offset + w]) return false;
+        }
+        return true;
+    }
+
+    /** Whether every key of the mask is currently held. */
+    public boolean containsAll(long[] mask, int offset) {
+        for (int w = 0; w < WORDS; w++) {
+            if ((mask[offset + w] & ~pressed[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    /** Whether any key of the mask is currently held. */
+    public boolean containsAny(long[] mask, int offset) {
+        for (int w = 0; w < WORDS; w++) {
+            if ((mask[offset + w] & pressed[w]) != 0) return true;
+        }
+        return false;
+    }
+
+    public static boolean maskContains(long[] mask, int offset, int index) {
+        return (mask[offset + (index >>> 6)] & (1L << index)) != 0;
+    }
+}
@@ -0,0 +1,62 @@
+package org.grill.servlinker.client.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.networking.LatencyEchoS2CPacket;
+import org.grill.servlinker.networking.LatencyStampC2SPacket;
+import org.grill.servlinker.utils.LatencyHistograms;
+
+/**
+ * Client half of the latency measurement. Capture-to-send is recorded for every event sent; with
+ * {@code Capabilities.LATENCY} negotiated, a {@link LatencyStampC2SPacket} follows an input packet at most once per
+ * {@link #INTERVAL_NANOS}, and its echo fills in the network and server-side stages.
+ * <p>
+ * Histograms outlive connections until {@link #reset}, so they can be dumped after a disconnect. Client thread only.
+ */
+public final class LatencyProbe {
+    // 0 turns probes off; capture-to-send is still measured
+    public static final long INTERVAL_NANOS = Long.getLong("servlinker.latencyProbeMs", 1000L) * 1_000_000L;
+
+    @Getter private final LatencyHistograms histograms = new LatencyHistograms();
+    @Getter @Setter private boolean enabled = false; // server agreed to echo probes
+    private long lastProbeNanos = System.nanoTime() - INTERVAL_NANOS;
+    private int sendToReceiveMicros = 0; // latest estimate, reported to the server with the next probe
+
+    public void recordSent(InputEvent event, long nowNanos) {
+        histograms.record(LatencyHistograms.Stage.CAPTURE_TO_SEND, nowNanos - event.timestampNanos());
+    }
+
+    /** Sends a probe after an input packet whose oldest event waited {@code captureToSendNanos}, if one is due. */
+    public void afterPacket(PacketSink sink, long captureToSendNanos) {
+        if (!enabled || INTERVAL_NANOS <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastProbeNanos < INTERVAL_NANOS) {
+            return;
+        }
+        lastProbeNanos = now;
+        sink.send(new LatencyStampC2SPacket(now, toMicros(captureToSendNanos), sendToReceiveMicros));
+    }
+
+    public void onEcho(LatencyEchoS2CPacket echo) {
+        long roundTrip = System.nanoTime() - echo.sendNanos() - echo.heldMicros() * 1_000L;
+        if (roundTrip < 0) {
+            return; // not one of ours, e.g. sent before a reconnect
+        }
+        long oneWay = roundTrip / 2;
+        histograms.record(LatencyHistograms.Stage.SEND_TO_RECEIVE, oneWay);
+        histograms.record(LatencyHistograms.Stage.RECEIVE_TO_DISPATCH, echo.receiveToDispatchMicros() * 1_000L);
+        sendToReceiveMicros = toMicros(oneWay);
+    }
+
+    public void reset() {
+        histograms.reset();
+        sendToReceiveMicros = 0;
+    }
+
+    private static int toMicros(long nanos) {
+        return (int) Math.max(0L, Math.min(Integer.MAX_VALUE, nanos / 1_000L));
+    }
+}
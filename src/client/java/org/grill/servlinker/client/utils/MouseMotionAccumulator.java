@@ -0,0 +1,63 @@
+package org.grill.servlinker.client.utils;
+
+/**
+ * Sums cursor and scroll-wheel movement from the GLFW callbacks between two ticks.
+ * <p>
+ * Like {@link InputCallbackQueue} it is fed on the render thread, which also runs client ticks.
+ * Movement only counts while the game holds the cursor, so pointing at menus is not reported as aim.
+ */
+public final class MouseMotionAccumulator {
+    private static boolean enabled = false;
+    private static boolean hasPosition = false;
+    private static double lastX, lastY;
+    private static double motionX, motionY;
+    private static double scrollX, scrollY;
+
+    private MouseMotionAccumulator() {}
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+        clear();
+    }
+
+    public static void onCursorPos(double x, double y, boolean locked) {
+        if (!enabled || !locked) {
+            hasPosition = false; // the cursor jumps when it is grabbed, do not count that
+            return;
+        }
+        if (hasPosition) {
+            motionX += x - lastX;
+            motionY += y - lastY;
+        }
+        lastX = x;
+        lastY = y;
+        hasPosition = true;
+    }
+
+    public static void onScroll(double horizontal, double vertical) {
+        if (!enabled) return;
+        scrollX += horizontal;
+        scrollY += vertical;
+    }
+
+    /**
+     * Writes {motionX, motionY, scrollX, scrollY} into {@code out} and starts a new accumulation.
+     * Returns false, leaving {@code out} untouched, if nothing moved.
+     */
+    public static boolean take(double[] out) {
+        if (motionX == 0.0 && motionY == 0.0 && scrollX == 0.0 && scrollY == 0.0) {
+            return false;
+        }
+        out[0] = motionX;
+        out[1] = motionY;
+        out[2] = scrollX;
+        out[3] = scrollY;
+        motionX = motionY = scrollX = scrollY = 0.0;
+        return true;
+    }
+
+    public static void clear() {
+        hasPosition = false;
+        motionX = motionY = scrollX = scrollY = 0.0;
+    }
+}
@@ -0,0 +1,9 @@
+package org.grill.servlinker.client.utils;
+
+import net.minecraft.network.packet.CustomPayload;
+
+/** Where {@link InputCapture} sends its payloads; {@code ClientPlayNetworking::send} in game. */
+@FunctionalInterface
+public interface PacketSink {
+    void send(CustomPayload payload);
+}
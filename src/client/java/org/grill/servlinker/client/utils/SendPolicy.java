@@ -0,0 +1,58 @@
+package org.grill.servlinker.client.utils;
+
+import lombok.Getter;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.networking.SendPolicyS2CPacket;
+
+/**
+ * The server's {@link SendPolicyS2CPacket} in lookup form: a lane per event kind and a bitset of critical key
+ * codes, so picking an event's lane on the send path is two array reads.
+ */
+public final class SendPolicy {
+    private static final int KEY_CODES = 349; // GLFW_KEY_LAST + 1
+    private static final int MAX_DEFER_TICKS = 20;
+
+    private final int[] laneByKind = new int[InputEvent.Kind.values().length];
+    private final long[] criticalKeys = new long[(KEY_CODES + 63) >>> 6];
+    @Getter private int deferTicks = 1;
+    @Getter private boolean immediate = false; // whether any event can take the IMMEDIATE lane
+
+    public SendPolicy() {
+        reset();
+    }
+
+    public void apply(SendPolicyS2CPacket packet) {
+        reset();
+        int[] lanes = packet.lanes();
+        for (int kind = 0; kind < Math.min(lanes.length, laneByKind.length); kind++) {
+            int lane = lanes[kind];
+            laneByKind[kind] = lane >= SendPolicyS2CPacket.IMMEDIATE && lane <= SendPolicyS2CPacket.DEFERRED ? lane : SendPolicyS2CPacket.TICK;
+            immediate |= laneByKind[kind] == SendPolicyS2CPacket.IMMEDIATE;
+        }
+        for (int keyCode : packet.criticalKeys()) {
+            if (keyCode >= 0 && keyCode < KEY_CODES) {
+                criticalKeys[keyCode >>> 6] |= 1L << keyCode;
+                immediate = true;
+            }
+        }
+        deferTicks = Math.max(1, Math.min(MAX_DEFER_TICKS, packet.deferTicks()));
+    }
+
+    /** Back to every event in the TICK lane. */
+    public void reset() {
+        java.util.Arrays.fill(laneByKind, SendPolicyS2CPacket.TICK);
+        java.util.Arrays.fill(criticalKeys, 0L);
+        deferTicks = 1;
+        immediate = false;
+    }
+
+    public int laneOf(InputEvent event) {
+        if (event.kind() == InputEvent.Kind.KEY) {
+            int keyCode = event.code();
+            if (keyCode >= 0 && keyCode < KEY_CODES && (criticalKeys[keyCode >>> 6] & 1L << keyCode) != 0) {
+                return SendPolicyS2CPacket.IMMEDIATE;
+            }
+        }
+        return laneByKind[event.kind().ordinal()];
+    }
+}
@@ -0,0 +1,18 @@
+package org.grill.servlinker.client.utils;
+
+/** Why {@link InputCapture} is not reading input, as decided each tick by {@link CaptureScheduler}. */
+public enum SuspendReason {
+    NONE(false),
+    NO_WORLD(false),
+    NO_PLUGIN(false),
+    UNFOCUSED(true),
+    PAUSED(true),
+    SCREEN(true);
+
+    // Whether a server is listening and has to be told that held input went away
+    final boolean notifiesServer;
+
+    SuspendReason(boolean notifiesServer) {
+        this.notifiesServer = notifiesServer;
+    }
+}
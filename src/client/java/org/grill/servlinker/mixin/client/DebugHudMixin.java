@@ -0,0 +1,22 @@
+package org.grill.servlinker.mixin.client;
+
+import net.minecraft.client.gui.hud.DebugHud;
+import org.grill.servlinker.client.CaptureStats;
+import org.grill.servlinker.client.ServlinkerClient;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.List;
+
+@Mixin(DebugHud.class)
+public class DebugHudMixin {
+    @Inject(method = "getLeftText", at = @At("RETURN"))
+    private void servlinker$appendCaptureStats(CallbackInfoReturnable<List<String>> cir) {
+        if (ServlinkerClient.inputCapture == null) return;
+        List<String> lines = cir.getReturnValue();
+        lines.add("");
+        lines.addAll(CaptureStats.lines(ServlinkerClient.inputCapture));
+    }
+}
@@ -0,0 +1,16 @@
+package org.grill.servlinker.mixin.client;
+
+import net.minecraft.client.Keyboard;
+import org.grill.servlinker.client.utils.InputCallbackQueue;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(Keyboard.class)
+public class KeyboardMixin {
+    @Inject(method = "onKey", at = @At("HEAD"))
+    private void servlinker$onKey(long window, int key, int scancode, int action, int modifiers, CallbackInfo ci) {
+        InputCallbackQueue.onKey(key, action);
+    }
+}
@@ -0,0 +1,19 @@
+package org.grill.servlinker.mixin.client;
+
+import net.minecraft.client.MinecraftClient;
+import org.grill.servlinker.client.ServlinkerClient;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(MinecraftClient.class)
+public class MinecraftClientMixin {
+    // Input from the previous frame's event poll is current here, before this frame's ticks run
+    @Inject(method = "render", at = @At("HEAD"))
+    private void servlinker$onFrame(boolean tick, CallbackInfo ci) {
+        if (ServlinkerClient.inputCapture != null && ((MinecraftClient) (Object) this).player != null) {
+            ServlinkerClient.inputCapture.onFrame();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.grill.servlinker.mixin.client;
+
+import net.minecraft.client.Mouse;
+import org.grill.servlinker.client.utils.InputCallbackQueue;
+import org.grill.servlinker.client.utils.MouseMotionAccumulator;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(Mouse.class)
+public class MouseMixin {
+    @Inject(method = "onMouseButton", at = @At("HEAD"))
+    private void servlinker$onMouseButton(long window, int button, int action, int mods, CallbackInfo ci) {
+        InputCallbackQueue.onMouseButton(button, action);
+    }
+
+    @Inject(method = "onCursorPos", at = @At("HEAD"))
+    private void servlinker$onCursorPos(long window, double x, double y, CallbackInfo ci) {
+        MouseMotionAccumulator.onCursorPos(x, y, ((Mouse) (Object) this).isCursorLocked());
+    }
+
+    @Inject(method = "onMouseScroll", at = @At("HEAD"))
+    private void servlinker$onMouseScroll(long window, double horizontal, double vertical, CallbackInfo ci) {
+        MouseMotionAccumulator.onScroll(horizontal, vertical);
+    }
+}
@@ -0,0 +1,119 @@
+package org.grill.servlinker.client.benchmark;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.packet.CustomPayload;
+import org.grill.servlinker.client.networking.WireFormat;
+import org.grill.servlinker.client.utils.CaptureMode;
+import org.grill.servlinker.client.utils.InputCapture;
+import org.grill.servlinker.client.utils.PacketSink;
+import org.grill.servlinker.networking.InputBatchC2SPacket;
+import org.grill.servlinker.networking.SubscriptionS2CPacket;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@link InputCapture#tick()} with a replayed {@link KeyTrace}.
+ * <p>
+ * {@code tick} reports ns per tick, with allocations per tick from the gc profiler
+ * ({@code gc.alloc.rate.norm}); {@code throughput} reports ticks and captured events per second.
+ * {@link IdleTickAllocationCheck} enforces that the idle case allocates nothing.
+ * Run with {@code ./gradlew jmh}; to replay a recorded trace run the jmh jar with {@code -p workload=file:<path>}.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CaptureTickBenchmark {
+    @Param({"idle", "typing", "chords", "mouseSpam"})
+    public String workload;
+
+    @Param({"CALLBACK", "POLLING"})
+    public CaptureMode mode;
+
+    @Param({"BINARY", "STRING"})
+    public WireFormat wireFormat;
+
+    private TraceInputSource source;
+    private CountingSink sink;
+    private InputCapture capture;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        // Payload classes touch registries while loading
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        KeyTrace trace = KeyTrace.of(workload);
+        source = new TraceInputSource(trace);
+        sink = new CountingSink();
+        capture = new InputCapture(source, sink);
+        capture.setCaptureMode(mode);
+        capture.setWireFormat(wireFormat);
+        capture.setBatching(wireFormat == WireFormat.BINARY);
+        capture.setSendingKeyNames(wireFormat == WireFormat.STRING);
+        if (workload.equals("chords")) {
+            capture.applySubscription(new SubscriptionS2CPacket(true, new int[0], KeyTrace.chordKeys(), List.of(), 0b11111, true));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void tick(Blackhole blackhole) {
+        source.advance();
+        capture.tick();
+        blackhole.consume(sink.last);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput(EventCounters counters, Blackhole blackhole) {
+        long before = sink.events;
+        source.advance();
+        capture.tick();
+        counters.events += sink.events - before;
+        blackhole.consume(sink.last);
+    }
+
+    /** Events captured, reported by JMH as a rate next to the tick rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class EventCounters {
+        public long events;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            events = 0;
+        }
+    }
+
+    // Stands in for the network, keeps the last payload alive so nothing is optimised away
+    private static final class CountingSink implements PacketSink {
+        CustomPayload last;
+        long events;
+
+        @Override
+        public void send(CustomPayload payload) {
+            last = payload;
+            events += payload instanceof InputBatchC2SPacket batch ? batch.events().size() : 1;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.grill.servlinker.client.benchmark;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import org.grill.servlinker.client.networking.WireFormat;
+import org.grill.servlinker.client.utils.CaptureMode;
+import org.grill.servlinker.client.utils.InputCapture;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Fails when a steady-state idle {@link InputCapture#tick()} allocates. Counts the bytes the current thread
+ * allocates over {@link #TICKS} idle ticks, after a warm-up long enough for the JIT to compile the tick path,
+ * for every capture mode and wire format. Each tick is preceded by a few {@link InputCapture#onFrame()} calls
+ * so FRAME sampling is covered too. Run by {@code ./gradlew check} through {@code checkTickAllocations}.
+ */
+public final class IdleTickAllocationCheck {
+    private static final int WARMUP_TICKS = 200_000;
+    private static final int TICKS = 100_000;
+    private static final int FRAMES_PER_TICK = 3; // 60 fps against the 20 tps trace clock
+
+    private IdleTickAllocationCheck() {}
+
+    public static void main(String[] args) throws IOException {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        KeyTrace trace = KeyTrace.of("idle");
+        StringBuilder failures = new StringBuilder();
+        for (CaptureMode mode : CaptureMode.values()) {
+            for (WireFormat wireFormat : WireFormat.values()) {
+                TraceInputSource source = new TraceInputSource(trace);
+                InputCapture capture = new InputCapture(source, payload -> {});
+                capture.setCaptureMode(mode);
+                capture.setWireFormat(wireFormat);
+                capture.setBatching(wireFormat == WireFormat.BINARY);
+                capture.setSendingKeyNames(wireFormat == WireFormat.STRING);
+
+                run(source, capture, WARMUP_TICKS);
+                // The reading itself is not free, so an empty measurement is subtracted
+                long overhead = threads.getCurrentThreadAllocatedBytes();
+                overhead = threads.getCurrentThreadAllocatedBytes() - overhead;
+                long before = threads.getCurrentThreadAllocatedBytes();
+                run(source, capture, TICKS);
+                long allocated = threads.getCurrentThreadAllocatedBytes() - before - overhead;
+
+                System.out.printf("idle %s/%s: %d bytes over %d ticks%n", mode, wireFormat, allocated, TICKS);
+                if (allocated > 0) {
+                    failures.append(' ').append(mode).append('/').append(wireFormat);
+                }
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Idle capture tick allocates in:" + failures);
+        }
+    }
+
+    private static void run(TraceInputSource source, InputCapture capture, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            source.advance();
+            for (int frame = 0; frame < FRAMES_PER_TICK; frame++) {
+                capture.onFrame();
+            }
+            capture.tick();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.grill.servlinker.client.benchmark;
+
+import org.grill.servlinker.client.utils.InputCallbackQueue;
+import org.lwjgl.glfw.GLFW;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Raw input per client tick, replayed in a loop by {@link TraceInputSource}.
+ * <p>
+ * Each event is packed into an int as {@code code | pressed << 15 | type << 16}. Traces must end with
+ * everything released so that looping does not leave keys stuck.
+ * <p>
+ * Recorded traces are text files with one line per tick and whitespace separated tokens:
+ * {@code +K65} / {@code -K65} press and release GLFW key 65, {@code +M0} / {@code -M0} do the same for
+ * mouse button 0. Empty lines are idle ticks, lines starting with {@code #} are ignored.
+ */
+public final class KeyTrace {
+    private static final int PRESSED = 1 << 15;
+    private static final int CODE_MASK = PRESSED - 1;
+
+    private final int[][] ticks;
+
+    private KeyTrace(int[][] ticks) {
+        this.ticks = ticks;
+    }
+
+    public int length() {
+        return ticks.length;
+    }
+
+    public int[] tick(int tick) {
+        return ticks[tick];
+    }
+
+    public int eventCount() {
+        int count = 0;
+        for (int[] tick : ticks) {
+            count += tick.length;
+        }
+        return count;
+    }
+
+    public static int type(int event) {
+        return event >>> 16;
+    }
+
+    public static int code(int event) {
+        return event & CODE_MASK;
+    }
+
+    public static boolean pressed(int event) {
+        return (event & PRESSED) != 0;
+    }
+
+    /**
+     * @param workload {@code idle}, {@code typing}, {@code chords}, {@code mouseSpam} or {@code file:<path>}
+     */
+    public static KeyTrace of(String workload) throws IOException {
+        if (workload.startsWith("file:")) {
+            return load(Path.of(workload.substring("file:".length())));
+        }
+        return switch (workload) {
+            case "idle" -> idle();
+            case "typing" -> typing();
+            case "chords" -> chords();
+            case "mouseSpam" -> mouseSpam();
+            default -> throw new IllegalArgumentException("Unknown workload: " + workload);
+        };
+    }
+
+    public static KeyTrace load(Path path) throws IOException {
+        List<int[]> ticks = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            line = line.strip();
+            if (line.startsWith("#")) continue;
+            if (line.isEmpty()) {
+                ticks.add(new int[0]);
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            int[] events = new int[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                events[i] = parse(tokens[i]);
+            }
+            ticks.add(events);
+        }
+        if (ticks.isEmpty()) {
+            throw new IOException("Empty trace: " + path);
+        }
+        return new KeyTrace(ticks.toArray(new int[0][]));
+    }
+
+    private static int parse(String token) throws IOException {
+        if (token.length() < 3 || (token.charAt(0) != '+' && token.charAt(0) != '-')) {
+            throw new IOException("Bad trace token: " + token);
+        }
+        int type = switch (token.charAt(1)) {
+            case 'K' -> InputCallbackQueue.TYPE_KEY;
+            case 'M' -> InputCallbackQueue.TYPE_MOUSE_BUTTON;
+            default -> throw new IOException("Bad trace token: " + token);
+        };
+        try {
+            return event(type, Integer.parseInt(token.substring(2)), token.charAt(0) == '+');
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad trace token: " + token, e);
+        }
+    }
+
+    private static int event(int type, int code, boolean pressed) {
+        return code | (pressed ? PRESSED : 0) | type << 16;
+    }
+
+    private static int key(int keyCode, boolean pressed) {
+        return event(InputCallbackQueue.TYPE_KEY, keyCode, pressed);
+    }
+
+    private static int mouse(int button, boolean pressed) {
+        return event(InputCallbackQueue.TYPE_MOUSE_BUTTON, button, pressed);
+    }
+
+    // Nothing changes, measures the per-tick floor
+    private static KeyTrace idle() {
+        return new KeyTrace(new int[][] {{}});
+    }
+
+    // One letter per tick, each released as the next one goes down
+    private static KeyTrace typing() {
+        String text = "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG";
+        int[][] ticks = new int[text.length() + 1][];
+        int previous = -1;
+        for (int i = 0; i < text.length(); i++) {
+            int keyCode = text.charAt(i) == ' ' ? GLFW.GLFW_KEY_SPACE : text.charAt(i); // GLFW letter codes are ASCII
+            ticks[i] = previous < 0 ? new int[] {key(keyCode, true)} : new int[] {key(previous, false), key(keyCode, true)};
+            previous = keyCode;
+        }
+        ticks[text.length()] = new int[] {key(previous, false)};
+        return new KeyTrace(ticks);
+    }
+
+    /** Digits chorded with Ctrl+Shift; pair with {@link #chordKeys()} so the combo matcher is exercised. */
+    private static KeyTrace chords() {
+        List<int[]> ticks = new ArrayList<>();
+        ticks.add(new int[] {key(GLFW.GLFW_KEY_LEFT_CONTROL, true), key(GLFW.GLFW_KEY_LEFT_SHIFT, true)});
+        for (int digit = GLFW.GLFW_KEY_1; digit <= GLFW.GLFW_KEY_5; digit++) {
+            ticks.add(new int[] {key(digit, true)});
+            ticks.add(new int[] {key(digit, false)});
+        }
+        // Break and restore the modifier pair mid-trace
+        ticks.add(new int[] {key(GLFW.GLFW_KEY_LEFT_SHIFT, false), key(GLFW.GLFW_KEY_Q, true)});
+        ticks.add(new int[] {key(GLFW.GLFW_KEY_LEFT_SHIFT, true), key(GLFW.GLFW_KEY_Q, false)});
+        ticks.add(new int[] {key(GLFW.GLFW_KEY_LEFT_CONTROL, false), key(GLFW.GLFW_KEY_LEFT_SHIFT, false)});
+        return new KeyTrace(ticks.toArray(new int[0][]));
+    }
+
+    public static List<int[]> chordKeys() {
+        List<int[]> chords = new ArrayList<>();
+        chords.add(new int[] {GLFW.GLFW_KEY_LEFT_CONTROL, GLFW.GLFW_KEY_LEFT_SHIFT});
+        for (int digit = GLFW.GLFW_KEY_1; digit <= GLFW.GLFW_KEY_5; digit++) {
+            chords.add(new int[] {GLFW.GLFW_KEY_LEFT_CONTROL, GLFW.GLFW_KEY_LEFT_SHIFT, digit});
+        }
+        return chords;
+    }
+
+    // Several clicks per tick, faster than polling can see
+    private static KeyTrace mouseSpam() {
+        int left = GLFW.GLFW_MOUSE_BUTTON_LEFT;
+        int right = GLFW.GLFW_MOUSE_BUTTON_RIGHT;
+        return new KeyTrace(new int[][] {
+                {mouse(left, true), mouse(left, false), mouse(right, true), mouse(left, true)},
+                {mouse(left, false), mouse(right, false), mouse(left, true), mouse(left, false)}
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package org.grill.servlinker.client.benchmark;
+
+import org.grill.servlinker.client.utils.InputCallbackQueue;
+import org.grill.servlinker.client.utils.InputSource;
+
+/**
+ * Replays a {@link KeyTrace} as if it came from the game window: {@link #advance()} moves to the next
+ * tick, whose events are then delivered as callbacks and reflected in the polled state.
+ */
+public final class TraceInputSource implements InputSource {
+    private static final long TICK_NANOS = 50_000_000L;
+
+    private final KeyTrace trace;
+    private final boolean[] keysDown = new boolean[512];
+    private final boolean[] buttonsDown = new boolean[8];
+    private boolean callbacksEnabled = false;
+    private int tick = -1;
+    private long now = 0L;
+    private boolean pending = false; // current tick's callbacks not yet drained
+
+    public TraceInputSource(KeyTrace trace) {
+        this.trace = trace;
+    }
+
+    public void advance() {
+        tick = tick + 1 == trace.length() ? 0 : tick + 1;
+        now += TICK_NANOS;
+        for (int event : trace.tick(tick)) {
+            boolean[] state = KeyTrace.type(event) == InputCallbackQueue.TYPE_KEY ? keysDown : buttonsDown;
+            state[KeyTrace.code(event)] = KeyTrace.pressed(event);
+        }
+        pending = callbacksEnabled;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    @Override
+    public boolean isKeyDown(int keyCode) {
+        return keysDown[keyCode];
+    }
+
+    @Override
+    public boolean isMouseButtonDown(int button) {
+        return buttonsDown[button];
+    }
+
+    @Override
+    public void setCallbacksEnabled(boolean enabled) {
+        callbacksEnabled = enabled;
+        pending = false;
+    }
+
+    @Override
+    public int drainCallbacks(Callback callback) {
+        if (pending) {
+            int[] events = trace.tick(tick);
+            // Spread the tick's events across the tick like real callbacks
+            long step = events.length == 0 ? 0 : TICK_NANOS / events.length;
+            long timestamp = now - TICK_NANOS;
+            for (int event : events) {
+                timestamp += step;
+                callback.accept(KeyTrace.type(event), KeyTrace.code(event), KeyTrace.pressed(event), timestamp);
+            }
+            pending = false;
+        }
+        return 0;
+    }
+
+    @Override
+    public void discardCallbacks() {
+        pending = false;
+    }
+
+    @Override
+    public void setMotionEnabled(boolean enabled) {
+    }
+
+    @Override
+    public boolean drainMotion(double[] deltas) {
+        return false;
+    }
+}
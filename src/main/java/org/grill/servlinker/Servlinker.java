@@ -1,5 +1,12 @@
 package org.grill.servlinker;
 
+import org.grill.servlinker.networking.ServlinkerNetworking;
+import org.grill.servlinker.server.InputIngest;
+import org.grill.servlinker.server.LatencyCommand;
+import org.grill.servlinker.server.dispatch.InputRouter;
+import org.grill.servlinker.server.gesture.GestureEngine;
+import org.grill.servlinker.server.load.LoadGenerator;
+import org.grill.servlinker.server.load.LoadTestCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,8 +17,29 @@ public class Servlinker implements ModInitializer {
     public static final String MOD_ID = "ServLinker";
         public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 
+    public static InputIngest inputIngest;
+    public static InputRouter inputRouter;
+    public static GestureEngine gestureEngine;
 	
     @Override
     public void onInitialize() {
+        ServlinkerNetworking.registerPayloadTypes();
+
+        inputIngest = new InputIngest();
+        inputIngest.register();
+        LatencyCommand.register();
+
+        inputRouter = new InputRouter();
+        inputRouter.register();
+        inputIngest.addListener(inputRouter);
+
+        gestureEngine = new GestureEngine();
+        gestureEngine.register();
+        inputIngest.addListener(gestureEngine);
+
+        if (LoadGenerator.ENABLED) {
+            LoadGenerator.register();
+            LoadTestCommand.register();
+        }
     }
 }
@@ -0,0 +1,23 @@
+package org.grill.servlinker.mixin;
+
+import net.minecraft.network.packet.c2s.common.CustomPayloadC2SPacket;
+import net.minecraft.server.network.ServerCommonNetworkHandler;
+import net.minecraft.server.network.ServerPlayNetworkHandler;
+import org.grill.servlinker.Servlinker;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ServerCommonNetworkHandler.class)
+public abstract class ServerCommonNetworkHandlerMixin {
+    // Runs on the network thread, before Fabric would schedule the payload onto the server thread
+    @Inject(method = "onCustomPayload", at = @At("HEAD"), cancellable = true)
+    private void servlinker$onCustomPayload(CustomPayloadC2SPacket packet, CallbackInfo ci) {
+        if ((Object) this instanceof ServerPlayNetworkHandler handler
+                && Servlinker.inputIngest != null
+                && Servlinker.inputIngest.receive(handler.player, packet.payload())) {
+            ci.cancel();
+        }
+    }
+}
@@ -1,4 +1,4 @@
-package org.grill.servlinker.client.networking;
+package org.grill.servlinker.networking;
 
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
@@ -6,6 +6,7 @@ import net.minecraft.network.codec.PacketCodecs;
 import net.minecraft.network.packet.CustomPayload;
 import net.minecraft.util.Identifier;
 
+/** Answer to {@link SyncS2CPacket}: {@code key} is "ack" followed by the accepted features, e.g. "ack|binary|window=5". */
 public record AckC2SPacket(String key) implements CustomPayload {
     public static final Id<AckC2SPacket> ID = new Id<>(Identifier.of("runebound", "ack_packet"));
 
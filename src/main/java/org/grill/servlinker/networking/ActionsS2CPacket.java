@@ -0,0 +1,34 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+
+/**
+ * Named actions the server wants bound, sent after {@link ConfigS2CPacket} when {@link Capabilities#ACTIONS}
+ * was negotiated. An action's id is its index; the client binds each to a key the player can change and
+ * sends ACTION {@link InputEvent}s carrying the id.
+ *
+ * @param names       action names, e.g. "dash"
+ * @param defaultKeys GLFW key code bound when the player has not bound the action, -1 for none
+ */
+public record ActionsS2CPacket(List<String> names, List<Integer> defaultKeys) implements CustomPayload {
+    /** Actions a client can bind at once; later ones are ignored. */
+    public static final int MAX_ACTIONS = 16;
+
+    public static final Id<ActionsS2CPacket> ID = new Id<>(Identifier.of("runebound", "actions_packet"));
+
+    public static final PacketCodec<RegistryByteBuf, ActionsS2CPacket> CODEC = PacketCodec.tuple(
+            PacketCodecs.STRING.collect(PacketCodecs.toList()), ActionsS2CPacket::names,
+            PacketCodecs.VAR_INT.collect(PacketCodecs.toList()), ActionsS2CPacket::defaultKeys,
+            ActionsS2CPacket::new);
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
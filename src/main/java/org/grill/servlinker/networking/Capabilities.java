@@ -0,0 +1,71 @@
+package org.grill.servlinker.networking;
+
+/**
+ * Protocol version and capability flags exchanged in the handshake:
+ * {@link HelloS2CPacket} (server offer), {@link HelloC2SPacket} (client support) and
+ * {@link ConfigS2CPacket} (the set the server picked, which the client then runs with).
+ * <p>
+ * Servers and clients that predate the handshake use {@link SyncS2CPacket}/{@link AckC2SPacket} instead.
+ * New flags must only be used once both sides have them in the negotiated set, which is what lets
+ * wire changes roll out across mixed client versions.
+ */
+public final class Capabilities {
+    public static final int PROTOCOL_VERSION = 1;
+
+    /** {@link InputEvent} codec instead of {@link KeyPressC2SPacket} strings. */
+    public static final int BINARY = 1;
+    /** One {@link InputBatchC2SPacket} per tick. Requires BINARY. */
+    public static final int BATCH = 1 << 1;
+    /** Key names sent once in a {@link KeyDictionaryC2SPacket}. */
+    public static final int DICTIONARY = 1 << 2;
+    /** TAP events, coalesced by the client to keep key and mouse-button events under the server's budget. Requires BATCH. */
+    public static final int TAP = 1 << 3;
+    /** MOTION and SCROLL events when subscribed. Requires BINARY. */
+    public static final int MOTION = 1 << 4;
+    /** Reserved for a compressed batch encoding; nothing offers it yet. */
+    public static final int COMPRESSION = 1 << 5;
+    /** STATE events when capture is suspended and resumed, instead of releasing and pressing each key. Requires BINARY. */
+    public static final int STATE = 1 << 6;
+    /** Server-declared actions in an {@link ActionsS2CPacket}, bound by the player and sent as ACTION events. Requires BINARY. */
+    public static final int ACTIONS = 1 << 7;
+    /** {@link LatencyStampC2SPacket} probes answered with {@link LatencyEchoS2CPacket}, for latency histograms on both sides. */
+    public static final int LATENCY = 1 << 8;
+    /** Per-class send urgency from a {@link SendPolicyS2CPacket}. Requires BATCH. */
+    public static final int LANES = 1 << 9;
+
+    // Sampling modes, a server may ask for one; bit (1 << mode) in a client's supported set
+    public static final int SAMPLING_CLIENT_CHOICE = 0;
+    public static final int SAMPLING_POLLING = 1;
+    public static final int SAMPLING_CALLBACK = 2;
+    public static final int SAMPLING_FRAME = 3;
+
+    private Capabilities() {}
+
+    public static boolean has(int capabilities, int flag) {
+        return (capabilities & flag) == flag;
+    }
+
+    /** Drops flags whose prerequisites are missing from the set. */
+    public static int normalize(int capabilities) {
+        if (!has(capabilities, BINARY)) capabilities &= ~(BATCH | MOTION | STATE | ACTIONS);
+        if (!has(capabilities, BATCH)) capabilities &= ~(TAP | LANES);
+        return capabilities;
+    }
+
+    /** Flags understood by the given protocol version. */
+    public static int supportedIn(int protocolVersion) {
+        return protocolVersion >= 1 ? BINARY | BATCH | DICTIONARY | TAP | MOTION | COMPRESSION | STATE | ACTIONS | LATENCY | LANES : 0;
+    }
+
+    public static String describe(int capabilities) {
+        StringBuilder builder = new StringBuilder();
+        String[] names = {"binary", "batch", "dictionary", "tap", "motion", "compression", "state", "actions", "latency", "lanes"};
+        for (int bit = 0; bit < names.length; bit++) {
+            if ((capabilities & (1 << bit)) != 0) {
+                if (builder.length() > 0) builder.append(',');
+                builder.append(names[bit]);
+            }
+        }
+        return builder.length() == 0 ? "none" : builder.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+/**
+ * Ends the handshake: what the server picked from both sides' offers. The client configures its
+ * capture to match and sends nothing the set does not allow.
+ *
+ * @param protocolVersion    the lower of both sides' versions
+ * @param capabilities       negotiated {@link Capabilities} flags
+ * @param maxEventsPerSecond key and mouse-button event budget when {@link Capabilities#TAP} is set
+ * @param maxEventsPerTick   key and mouse-button event budget when {@link Capabilities#TAP} is set
+ * @param samplingMode       a {@code Capabilities.SAMPLING_*} mode, or client's choice
+ * @param frameRate          samples per second for the frame mode, 0 for every frame
+ */
+public record ConfigS2CPacket(int protocolVersion, int capabilities, int maxEventsPerSecond, int maxEventsPerTick,
+                              int samplingMode, int frameRate) implements CustomPayload {
+    public static final Id<ConfigS2CPacket> ID = new Id<>(Identifier.of("runebound", "config_packet"));
+
+    public static final PacketCodec<RegistryByteBuf, ConfigS2CPacket> CODEC =
+            PacketCodec.of(ConfigS2CPacket::write, ConfigS2CPacket::new);
+
+    private ConfigS2CPacket(PacketByteBuf buf) {
+        this(buf.readVarInt(), buf.readVarInt(), buf.readVarInt(), buf.readVarInt(), buf.readVarInt(), buf.readVarInt());
+    }
+
+    private void write(PacketByteBuf buf) {
+        buf.writeVarInt(protocolVersion);
+        buf.writeVarInt(capabilities);
+        buf.writeVarInt(maxEventsPerSecond);
+        buf.writeVarInt(maxEventsPerTick);
+        buf.writeVarInt(samplingMode);
+        buf.writeVarInt(frameRate);
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
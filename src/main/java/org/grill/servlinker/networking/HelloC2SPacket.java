@@ -0,0 +1,38 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+/**
+ * The client's answer to {@link HelloS2CPacket}.
+ *
+ * @param protocolVersion      highest protocol version the client speaks
+ * @param capabilities         {@link Capabilities} flags the client supports
+ * @param samplingModes        bit {@code 1 << mode} for every {@code Capabilities.SAMPLING_*} mode the client can run
+ * @param coalesceWindowMillis events this close together were pressed at once, see {@code InputOrdering}
+ */
+public record HelloC2SPacket(int protocolVersion, int capabilities, int samplingModes, int coalesceWindowMillis) implements CustomPayload {
+    public static final Id<HelloC2SPacket> ID = new Id<>(Identifier.of("runebound", "hello_c2s_packet"));
+
+    public static final PacketCodec<RegistryByteBuf, HelloC2SPacket> CODEC =
+            PacketCodec.of(HelloC2SPacket::write, HelloC2SPacket::new);
+
+    private HelloC2SPacket(PacketByteBuf buf) {
+        this(buf.readVarInt(), buf.readVarInt(), buf.readVarInt(), buf.readVarInt());
+    }
+
+    private void write(PacketByteBuf buf) {
+        buf.writeVarInt(protocolVersion);
+        buf.writeVarInt(capabilities);
+        buf.writeVarInt(samplingModes);
+        buf.writeVarInt(coalesceWindowMillis);
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -0,0 +1,34 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+/**
+ * Opens the handshake with clients that registered this channel; older clients get a {@link SyncS2CPacket}.
+ *
+ * @param protocolVersion highest {@link Capabilities#PROTOCOL_VERSION} the server speaks
+ * @param capabilities    {@link Capabilities} flags the server is willing to use
+ */
+public record HelloS2CPacket(int protocolVersion, int capabilities) implements CustomPayload {
+    public static final Id<HelloS2CPacket> ID = new Id<>(Identifier.of("runebound", "hello_s2c_packet"));
+
+    public static final PacketCodec<RegistryByteBuf, HelloS2CPacket> CODEC =
+            PacketCodec.of(HelloS2CPacket::write, HelloS2CPacket::new);
+
+    private HelloS2CPacket(PacketByteBuf buf) {
+        this(buf.readVarInt(), buf.readVarInt());
+    }
+
+    private void write(PacketByteBuf buf) {
+        buf.writeVarInt(protocolVersion);
+        buf.writeVarInt(capabilities);
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -0,0 +1,44 @@
+package org.grill.servlinker.networking;
+
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+
+/**
+ * All events captured during one client tick, in the order they were produced. Senders split ticks with more
+ * than {@link #MAX_EVENTS} events over several batches.
+ */
+public record InputBatchC2SPacket(List<InputEvent> events) implements CustomPayload {
+    public static final Id<InputBatchC2SPacket> ID = new Id<>(Identifier.of("runebound", "input_batch_packet"));
+
+    public static final int MAX_EVENTS = 256;
+
+    /** Decoded in place of a batch that could not be read, such as one over {@link #MAX_EVENTS}. */
+    public static final InputBatchC2SPacket MALFORMED = new InputBatchC2SPacket(List.of());
+
+    private static final PacketCodec<PacketByteBuf, List<InputEvent>> EVENTS = InputEvent.CODEC.collect(PacketCodecs.toList(MAX_EVENTS));
+
+    public static final PacketCodec<RegistryByteBuf, InputBatchC2SPacket> CODEC =
+            PacketCodec.ofStatic((buf, packet) -> EVENTS.encode(buf, packet.events()), InputBatchC2SPacket::read);
+
+    // The count is checked before any event is read, so an oversized batch costs nothing to turn away
+    private static InputBatchC2SPacket read(RegistryByteBuf buf) {
+        try {
+            return new InputBatchC2SPacket(EVENTS.decode(buf));
+        } catch (DecoderException e) {
+            buf.skipBytes(buf.readableBytes());
+            return MALFORMED;
+        }
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -0,0 +1,189 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.encoding.VarInts;
+
+/**
+ * A single captured input event in its typed form.
+ * <p>
+ * Binary layout: one header byte ({@code kind << 2 | action}) followed by varint codes.
+ * KEY and MOUSE_BUTTON carry exactly one code, SEQUENCE carries a varint count and then
+ * the key codes in press order. TOGGLE carries no codes; it is never sent by clients and only
+ * represents a {@link KeyInputToggleC2SPacket} inside the server's ordered event stream.
+ * MOTION and SCROLL carry an x and a y delta, zigzag-encoded so small movements either way take one byte,
+ * in the units the server chose in its {@link SubscriptionS2CPacket}; their action is always PRESS.
+ * A TAP of a KEY or MOUSE_BUTTON carries the code followed by the number of press and release pairs
+ * the client collapsed into it; it starts and ends released, and is only sent to servers that advertised
+ * an event budget. The count is between 1 and {@link #MAX_TAP_COUNT}.
+ * STATE replaces everything the server knows about held input: a varint count, the held key codes, and
+ * last a bitmask of held mouse buttons. Clients send it when capture is suspended (nothing held) and when it
+ * resumes, instead of a release or press per key; its action is always PRESS. It also releases every action.
+ * ACTION carries the id of an action from the server's {@link ActionsS2CPacket}, pressed or released through
+ * whatever key the player bound it to.
+ * <p>
+ * The last field is the event's age in microseconds when it was encoded. {@code timestampNanos} is a
+ * {@link System#nanoTime()} value of whichever side holds the event: the capture time on the client, and
+ * on the server the decode time minus that age, i.e. capture time shifted by the one-way network delay.
+ * Relative order and spacing within a connection are preserved exactly.
+ */
+public record InputEvent(Kind kind, Action action, int[] codes, long timestampNanos) {
+    public static final PacketCodec<PacketByteBuf, InputEvent> CODEC = PacketCodec.ofStatic(InputEvent::write, InputEvent::read);
+
+    public enum Kind { KEY, SEQUENCE, MOUSE_BUTTON, TOGGLE, MOTION, SCROLL, STATE, ACTION }
+
+    public enum Action { PRESS, RELEASE, RESTORE, TAP }
+
+    /** Most press and release pairs one TAP may stand for; larger counts are rejected as malformed. */
+    public static final int MAX_TAP_COUNT = 1024;
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final Action[] ACTIONS = Action.values();
+
+    public static InputEvent key(Action action, int keyCode, long timestampNanos) {
+        return new InputEvent(Kind.KEY, action, new int[]{keyCode}, timestampNanos);
+    }
+
+    public static InputEvent sequence(Action action, int[] keyCodes, long timestampNanos) {
+        return new InputEvent(Kind.SEQUENCE, action, keyCodes, timestampNanos);
+    }
+
+    public static InputEvent mouseButton(Action action, int button, long timestampNanos) {
+        return new InputEvent(Kind.MOUSE_BUTTON, action, new int[]{button}, timestampNanos);
+    }
+
+    /** PRESS turns capture on, RELEASE turns it off. */
+    public static InputEvent toggle(boolean on, long timestampNanos) {
+        return new InputEvent(Kind.TOGGLE, on ? Action.PRESS : Action.RELEASE, new int[0], timestampNanos);
+    }
+
+    public static InputEvent tap(Kind kind, int code, int count, long timestampNanos) {
+        return new InputEvent(kind, Action.TAP, new int[]{code, count}, timestampNanos);
+    }
+
+    /** Cursor movement accumulated over a tick, in subscription units. */
+    public static InputEvent motion(int dx, int dy, long timestampNanos) {
+        return new InputEvent(Kind.MOTION, Action.PRESS, new int[]{dx, dy}, timestampNanos);
+    }
+
+    /** Scroll wheel movement accumulated over a tick, in subscription units. */
+    public static InputEvent scroll(int dx, int dy, long timestampNanos) {
+        return new InputEvent(Kind.SCROLL, Action.PRESS, new int[]{dx, dy}, timestampNanos);
+    }
+
+    /** Snapshot of held input; a mouse button {@code b} is held if bit {@code 1 << b} of the mask is set. */
+    public static InputEvent state(int[] heldKeyCodes, int mouseButtons, long timestampNanos) {
+        int[] codes = java.util.Arrays.copyOf(heldKeyCodes, heldKeyCodes.length + 1);
+        codes[heldKeyCodes.length] = mouseButtons;
+        return new InputEvent(Kind.STATE, Action.PRESS, codes, timestampNanos);
+    }
+
+    public static InputEvent action(Action action, int actionId, long timestampNanos) {
+        return new InputEvent(Kind.ACTION, action, new int[]{actionId}, timestampNanos);
+    }
+
+    public int code() {
+        return codes[0];
+    }
+
+    /** Press and release pairs this event stands for: the TAP count, otherwise 0. */
+    public int tapCount() {
+        return action == Action.TAP ? codes[1] : 0;
+    }
+
+    public int dx() {
+        return codes[0];
+    }
+
+    public int dy() {
+        return codes[1];
+    }
+
+    /** Number of key codes at the start of a STATE event's codes. */
+    public int heldKeyCount() {
+        return codes.length - 1;
+    }
+
+    /** Held mouse buttons of a STATE event, one bit per button. */
+    public int heldMouseButtons() {
+        return codes[codes.length - 1];
+    }
+
+    private boolean isCounted() {
+        return kind == Kind.SEQUENCE || kind == Kind.STATE;
+    }
+
+    private boolean isDelta() {
+        return kind == Kind.MOTION || kind == Kind.SCROLL;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Bytes {@link #CODEC} writes for this event if encoded at {@code nowNanos}. */
+    public int encodedSize(long nowNanos) {
+        int size = 1;
+        if (isCounted()) {
+            size += VarInts.getSizeInBytes(codes.length);
+        }
+        for (int code : codes) {
+            size += VarInts.getSizeInBytes(isDelta() ? zigzag(code) : code);
+        }
+        return size + VarInts.getSizeInBytes(ageMicros(nowNanos));
+    }
+
+    private int ageMicros(long nowNanos) {
+        long ageMicros = (nowNanos - timestampNanos) / 1000L;
+        return (int) Math.max(0L, Math.min(Integer.MAX_VALUE, ageMicros));
+    }
+
+    private static void write(PacketByteBuf buf, InputEvent event) {
+        buf.writeByte(event.kind.ordinal() << 2 | event.action.ordinal());
+        if (event.isCounted()) {
+            buf.writeVarInt(event.codes.length);
+        }
+        boolean delta = event.isDelta();
+        for (int code : event.codes) {
+            buf.writeVarInt(delta ? zigzag(code) : code);
+        }
+        buf.writeVarInt(event.ageMicros(System.nanoTime()));
+    }
+
+    private static InputEvent read(PacketByteBuf buf) {
+        int header = buf.readUnsignedByte();
+        int kindIndex = header >>> 2;
+        int actionIndex = header & 0b11;
+        if (kindIndex >= KINDS.length || actionIndex >= ACTIONS.length) {
+            throw new IllegalArgumentException("Invalid input event header: " + header);
+        }
+        Kind kind = KINDS[kindIndex];
+        Action action = ACTIONS[actionIndex];
+        boolean delta = kind == Kind.MOTION || kind == Kind.SCROLL;
+        if (action == Action.TAP ? kind != Kind.KEY && kind != Kind.MOUSE_BUTTON : (delta || kind == Kind.STATE) && action != Action.PRESS) {
+            throw new IllegalArgumentException("Invalid input event header: " + header);
+        }
+        int count = switch (kind) {
+            case SEQUENCE, STATE -> buf.readVarInt();
+            case TOGGLE -> 0;
+            case MOTION, SCROLL -> 2;
+            default -> action == Action.TAP ? 2 : 1;
+        };
+        if (count < (kind == Kind.STATE ? 1 : 0) || count > 64) {
+            throw new IllegalArgumentException("Invalid sequence length: " + count);
+        }
+        int[] codes = new int[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = delta ? unzigzag(buf.readVarInt()) : buf.readVarInt();
+        }
+        if (action == Action.TAP && (codes[1] < 1 || codes[1] > MAX_TAP_COUNT)) {
+            throw new IllegalArgumentException("Invalid tap count: " + codes[1]);
+        }
+        long ageNanos = buf.readVarInt() * 1000L;
+        return new InputEvent(kind, action, codes, System.nanoTime() - ageNanos);
+    }
+}
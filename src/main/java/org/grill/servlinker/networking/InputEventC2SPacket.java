@@ -0,0 +1,18 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+public record InputEventC2SPacket(InputEvent event) implements CustomPayload {
+    public static final Id<InputEventC2SPacket> ID = new Id<>(Identifier.of("runebound", "input_event_packet"));
+
+    public static final PacketCodec<RegistryByteBuf, InputEventC2SPacket> CODEC =
+            PacketCodec.tuple(InputEvent.CODEC, InputEventC2SPacket::event, InputEventC2SPacket::new);
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
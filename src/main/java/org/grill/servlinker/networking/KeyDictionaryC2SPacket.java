@@ -0,0 +1,31 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+
+/**
+ * Sent once per connection after the sync handshake: the translation key of every tracked key code,
+ * so later events can carry the code alone. Larger lists or longer names fail to decode.
+ */
+public record KeyDictionaryC2SPacket(List<Integer> keyCodes, List<String> keyNames) implements CustomPayload {
+    public static final Id<KeyDictionaryC2SPacket> ID = new Id<>(Identifier.of("runebound", "key_dictionary_packet"));
+
+    // One entry per GLFW key code at most, GLFW_KEY_LAST is 348
+    public static final int MAX_KEYS = 349;
+    public static final int MAX_NAME_LENGTH = 64;
+
+    public static final PacketCodec<RegistryByteBuf, KeyDictionaryC2SPacket> CODEC = PacketCodec.tuple(
+            PacketCodecs.VAR_INT.collect(PacketCodecs.toList(MAX_KEYS)), KeyDictionaryC2SPacket::keyCodes,
+            PacketCodecs.string(MAX_NAME_LENGTH).collect(PacketCodecs.toList(MAX_KEYS)), KeyDictionaryC2SPacket::keyNames,
+            KeyDictionaryC2SPacket::new);
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
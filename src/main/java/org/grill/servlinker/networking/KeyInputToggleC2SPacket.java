@@ -1,4 +1,4 @@
-package org.grill.servlinker.client.networking;
+package org.grill.servlinker.networking;
 
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
@@ -0,0 +1,31 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+/**
+ * Answer to a {@link LatencyStampC2SPacket}, sent when the input before it reached the server's listeners.
+ * The client takes the round trip minus {@code heldMicros} as twice the one-way network delay.
+ *
+ * @param sendNanos              the probe's {@code sendNanos}
+ * @param receiveToDispatchMicros time from the probe's arrival until listeners started on its input
+ * @param heldMicros             time from the probe's arrival until this echo was sent, after the listeners
+ *                               finished; at least {@code receiveToDispatchMicros}, and what the client subtracts
+ */
+public record LatencyEchoS2CPacket(long sendNanos, int receiveToDispatchMicros, int heldMicros) implements CustomPayload {
+    public static final Id<LatencyEchoS2CPacket> ID = new Id<>(Identifier.of("runebound", "latency_echo_packet"));
+
+    public static final PacketCodec<RegistryByteBuf, LatencyEchoS2CPacket> CODEC = PacketCodec.tuple(
+            PacketCodecs.VAR_LONG, LatencyEchoS2CPacket::sendNanos,
+            PacketCodecs.VAR_INT, LatencyEchoS2CPacket::receiveToDispatchMicros,
+            PacketCodecs.VAR_INT, LatencyEchoS2CPacket::heldMicros,
+            LatencyEchoS2CPacket::new);
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -0,0 +1,31 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+/**
+ * Latency probe sent right after an input packet, at most a few times per second, when
+ * {@link Capabilities#LATENCY} was negotiated. The server answers with a {@link LatencyEchoS2CPacket}
+ * once that input has been dispatched.
+ *
+ * @param sendNanos           client {@link System#nanoTime()} when the probe was sent, echoed back as is
+ * @param captureToSendMicros age of the oldest event in the preceding input packet when it was sent
+ * @param sendToReceiveMicros the client's latest one-way network estimate, 0 before its first echo
+ */
+public record LatencyStampC2SPacket(long sendNanos, int captureToSendMicros, int sendToReceiveMicros) implements CustomPayload {
+    public static final Id<LatencyStampC2SPacket> ID = new Id<>(Identifier.of("runebound", "latency_stamp_packet"));
+
+    public static final PacketCodec<RegistryByteBuf, LatencyStampC2SPacket> CODEC = PacketCodec.tuple(
+            PacketCodecs.VAR_LONG, LatencyStampC2SPacket::sendNanos,
+            PacketCodecs.VAR_INT, LatencyStampC2SPacket::captureToSendMicros,
+            PacketCodecs.VAR_INT, LatencyStampC2SPacket::sendToReceiveMicros,
+            LatencyStampC2SPacket::new);
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -0,0 +1,66 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+/**
+ * How urgently the client should send each class of event, once {@link Capabilities#LANES} was negotiated.
+ * May be sent at any time and replaces the previous policy; until the first one every event takes the TICK lane.
+ * <p>
+ * IMMEDIATE events are sent as soon as they are captured, even between ticks, together with everything captured
+ * before them so order is kept. TICK events go out in the batch at the end of the tick. DEFERRED events wait up
+ * to {@code deferTicks} ticks, unless something more urgent is sent first.
+ *
+ * @param lanes        a lane per {@link InputEvent.Kind} ordinal; kinds past the end take the TICK lane
+ * @param deferTicks   longest wait for DEFERRED events, in ticks
+ * @param criticalKeys GLFW key codes whose KEY events are always IMMEDIATE
+ */
+public record SendPolicyS2CPacket(int[] lanes, int deferTicks, int[] criticalKeys) implements CustomPayload {
+    public static final Id<SendPolicyS2CPacket> ID = new Id<>(Identifier.of("runebound", "send_policy_packet"));
+
+    public static final PacketCodec<RegistryByteBuf, SendPolicyS2CPacket> CODEC =
+            PacketCodec.of(SendPolicyS2CPacket::write, SendPolicyS2CPacket::new);
+
+    public static final int IMMEDIATE = 0;
+    public static final int TICK = 1;
+    public static final int DEFERRED = 2;
+
+    private static final int MAX_ENTRIES = 256;
+
+    private SendPolicyS2CPacket(PacketByteBuf buf) {
+        this(readCodes(buf), buf.readVarInt(), readCodes(buf));
+    }
+
+    private void write(PacketByteBuf buf) {
+        writeCodes(buf, lanes);
+        buf.writeVarInt(deferTicks);
+        writeCodes(buf, criticalKeys);
+    }
+
+    private static void writeCodes(PacketByteBuf buf, int[] codes) {
+        buf.writeVarInt(codes.length);
+        for (int code : codes) {
+            buf.writeVarInt(code);
+        }
+    }
+
+    private static int[] readCodes(PacketByteBuf buf) {
+        int count = buf.readVarInt();
+        if (count < 0 || count > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Invalid send policy entry count: " + count);
+        }
+        int[] codes = new int[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = buf.readVarInt();
+        }
+        return codes;
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
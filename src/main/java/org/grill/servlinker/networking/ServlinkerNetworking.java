@@ -0,0 +1,27 @@
+package org.grill.servlinker.networking;
+
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+
+public final class ServlinkerNetworking {
+    private ServlinkerNetworking() {}
+
+    /** Payload types are shared by both sides, so they are registered once from the common initializer. */
+    public static void registerPayloadTypes() {
+        PayloadTypeRegistry.playC2S().register(KeyInputToggleC2SPacket.ID, KeyInputToggleC2SPacket.CODEC);
+        PayloadTypeRegistry.playC2S().register(KeyPressC2SPacket.ID, KeyPressC2SPacket.CODEC);
+        PayloadTypeRegistry.playC2S().register(InputEventC2SPacket.ID, InputEventC2SPacket.CODEC);
+        PayloadTypeRegistry.playC2S().register(InputBatchC2SPacket.ID, InputBatchC2SPacket.CODEC);
+        PayloadTypeRegistry.playC2S().register(KeyDictionaryC2SPacket.ID, KeyDictionaryC2SPacket.CODEC);
+        PayloadTypeRegistry.playC2S().register(AckC2SPacket.ID, AckC2SPacket.CODEC);
+        PayloadTypeRegistry.playC2S().register(HelloC2SPacket.ID, HelloC2SPacket.CODEC);
+        PayloadTypeRegistry.playC2S().register(LatencyStampC2SPacket.ID, LatencyStampC2SPacket.CODEC);
+
+        PayloadTypeRegistry.playS2C().register(SyncS2CPacket.ID, SyncS2CPacket.CODEC);
+        PayloadTypeRegistry.playS2C().register(SubscriptionS2CPacket.ID, SubscriptionS2CPacket.CODEC);
+        PayloadTypeRegistry.playS2C().register(HelloS2CPacket.ID, HelloS2CPacket.CODEC);
+        PayloadTypeRegistry.playS2C().register(ConfigS2CPacket.ID, ConfigS2CPacket.CODEC);
+        PayloadTypeRegistry.playS2C().register(ActionsS2CPacket.ID, ActionsS2CPacket.CODEC);
+        PayloadTypeRegistry.playS2C().register(LatencyEchoS2CPacket.ID, LatencyEchoS2CPacket.CODEC);
+        PayloadTypeRegistry.playS2C().register(SendPolicyS2CPacket.ID, SendPolicyS2CPacket.CODEC);
+    }
+}
@@ -0,0 +1,110 @@
+package org.grill.servlinker.networking;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The inputs the server wants to receive. May be sent at any time after the sync handshake and
+ * replaces the previous subscription; until the first one arrives the client sends everything.
+ *
+ * @param allKeys      every tracked key, {@code keyCodes} is ignored
+ * @param keyCodes     GLFW key codes to capture
+ * @param chords       key codes that form a sequence when held together, in any order
+ * @param ordered      key codes that form a sequence when pressed in exactly this order;
+ *                     with neither chords nor ordered combos every multi-key overlap is reported
+ * @param mouseButtons bitmask of GLFW mouse buttons to capture
+ * @param sequences    whether SEQ events are wanted at all
+ * @param motionResolution cursor movement in screen pixels per MOTION unit, 0 for no motion events
+ * @param scrollResolution wheel movement in scroll steps per SCROLL unit, 0 for no scroll events
+ */
+public record SubscriptionS2CPacket(boolean allKeys, int[] keyCodes, List<int[]> chords, List<int[]> ordered, int mouseButtons, boolean sequences,
+                                    float motionResolution, float scrollResolution) implements CustomPayload {
+    public static final Id<SubscriptionS2CPacket> ID = new Id<>(Identifier.of("runebound", "subscription_packet"));
+
+    public static final PacketCodec<RegistryByteBuf, SubscriptionS2CPacket> CODEC =
+            PacketCodec.of(SubscriptionS2CPacket::write, SubscriptionS2CPacket::new);
+
+    private static final int MAX_ENTRIES = 256;
+
+    /** Without mouse motion or scroll. */
+    public SubscriptionS2CPacket(boolean allKeys, int[] keyCodes, List<int[]> chords, List<int[]> ordered, int mouseButtons, boolean sequences) {
+        this(allKeys, keyCodes, chords, ordered, mouseButtons, sequences, 0f, 0f);
+    }
+
+    private SubscriptionS2CPacket(PacketByteBuf buf) {
+        this(buf.readBoolean(), readCodes(buf), readCombos(buf), readCombos(buf), buf.readVarInt(), buf.readBoolean(),
+                readResolution(buf), readResolution(buf));
+    }
+
+    // Servers from before motion capture end the packet after the sequences flag
+    private static float readResolution(PacketByteBuf buf) {
+        return buf.isReadable() ? positive(buf.readFloat()) : 0f;
+    }
+
+    private void write(PacketByteBuf buf) {
+        buf.writeBoolean(allKeys);
+        writeCodes(buf, keyCodes);
+        writeCombos(buf, chords);
+        writeCombos(buf, ordered);
+        buf.writeVarInt(mouseButtons);
+        buf.writeBoolean(sequences);
+        buf.writeFloat(motionResolution);
+        buf.writeFloat(scrollResolution);
+    }
+
+    // Anything that is not a positive finite number turns the channel off
+    private static float positive(float resolution) {
+        return resolution > 0f && Float.isFinite(resolution) ? resolution : 0f;
+    }
+
+    private static void writeCodes(PacketByteBuf buf, int[] codes) {
+        buf.writeVarInt(codes.length);
+        for (int code : codes) {
+            buf.writeVarInt(code);
+        }
+    }
+
+    private static void writeCombos(PacketByteBuf buf, List<int[]> combos) {
+        buf.writeVarInt(combos.size());
+        for (int[] combo : combos) {
+            writeCodes(buf, combo);
+        }
+    }
+
+    private static int[] readCodes(PacketByteBuf buf) {
+        int count = readCount(buf);
+        int[] codes = new int[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = buf.readVarInt();
+        }
+        return codes;
+    }
+
+    private static List<int[]> readCombos(PacketByteBuf buf) {
+        int count = readCount(buf);
+        List<int[]> combos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            combos.add(readCodes(buf));
+        }
+        return combos;
+    }
+
+    private static int readCount(PacketByteBuf buf) {
+        int count = buf.readVarInt();
+        if (count < 0 || count > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Invalid subscription entry count: " + count);
+        }
+        return count;
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
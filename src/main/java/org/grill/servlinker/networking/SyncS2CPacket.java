@@ -1,4 +1,4 @@
-package org.grill.servlinker.client.networking;
+package org.grill.servlinker.networking;
 
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
@@ -6,6 +6,7 @@ import net.minecraft.network.codec.PacketCodecs;
 import net.minecraft.network.packet.CustomPayload;
 import net.minecraft.util.Identifier;
 
+/** Handshake for clients without {@link HelloS2CPacket}: {@code key} lists offered features, e.g. "binary,batch". */
 public record SyncS2CPacket(String key) implements CustomPayload {
     public static final Id<SyncS2CPacket> ID = new Id<>(Identifier.of("runebound", "sync_packet"));
 
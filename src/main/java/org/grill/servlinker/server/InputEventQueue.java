@@ -0,0 +1,52 @@
+package org.grill.servlinker.server;
+
+import org.grill.servlinker.networking.InputEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free single-producer/single-consumer ring.
+ * <p>
+ * The producer is the player's connection, which Netty always services from the same event loop
+ * thread; the consumer is the server thread. {@link #offer} never blocks and fails when full.
+ */
+final class InputEventQueue {
+    private final InputEvent[] buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next index to poll, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next index to offer, written by the producer
+
+    InputEventQueue(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        buffer = new InputEvent[capacity];
+        mask = capacity - 1;
+    }
+
+    boolean offer(InputEvent event) {
+        long t = tail.get();
+        if (t - head.get() == buffer.length) {
+            return false;
+        }
+        buffer[(int) t & mask] = event;
+        tail.lazySet(t + 1); // publishes the slot write
+        return true;
+    }
+
+    InputEvent poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        int slot = (int) h & mask;
+        InputEvent event = buffer[slot];
+        buffer[slot] = null;
+        head.lazySet(h + 1); // hands the slot back to the producer
+        return event;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+}
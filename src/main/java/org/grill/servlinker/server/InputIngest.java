@@ -0,0 +1,452 @@
+package org.grill.servlinker.server;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.grill.servlinker.Servlinker;
+import org.grill.servlinker.networking.AckC2SPacket;
+import org.grill.servlinker.networking.ActionsS2CPacket;
+import org.grill.servlinker.networking.Capabilities;
+import org.grill.servlinker.networking.ConfigS2CPacket;
+import org.grill.servlinker.networking.HelloC2SPacket;
+import org.grill.servlinker.networking.HelloS2CPacket;
+import org.grill.servlinker.networking.InputBatchC2SPacket;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.networking.InputEventC2SPacket;
+import org.grill.servlinker.networking.KeyDictionaryC2SPacket;
+import org.grill.servlinker.networking.KeyInputToggleC2SPacket;
+import org.grill.servlinker.networking.KeyPressC2SPacket;
+import org.grill.servlinker.networking.LatencyEchoS2CPacket;
+import org.grill.servlinker.networking.LatencyStampC2SPacket;
+import org.grill.servlinker.networking.SendPolicyS2CPacket;
+import org.grill.servlinker.networking.SyncS2CPacket;
+import org.grill.servlinker.utils.LatencyHistograms;
+import org.grill.servlinker.utils.NanoHistogram;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Server side of ServLinker: decodes client input payloads on the network thread, queues them per
+ * player without scheduling a task per event, and hands them to {@link InputListener}s in one batch
+ * per player on each server tick.
+ * <p>
+ * Payloads reach {@link #receive} through {@code ServerCommonNetworkHandlerMixin} rather than Fabric
+ * receivers, which would submit one {@code server.execute} task per packet.
+ */
+public class InputIngest {
+    private static final Logger LOGGER = Servlinker.LOGGER;
+    // Advertised to clients, which coalesce taps and defer state changes to keep their key and mouse-button events under it;
+    // other kinds are not counted
+    public static final int MAX_EVENTS_PER_SECOND = Integer.getInteger("servlinker.maxEventsPerSecond", 200);
+    public static final int MAX_EVENTS_PER_TICK = Integer.getInteger("servlinker.maxEventsPerTick", 20);
+    public static final int OFFERED_CAPABILITIES =
+            Capabilities.BINARY | Capabilities.BATCH | Capabilities.DICTIONARY | Capabilities.TAP | Capabilities.MOTION
+                    | Capabilities.STATE | Capabilities.ACTIONS | Capabilities.LATENCY | Capabilities.LANES;
+    // A Capabilities.SAMPLING_* mode to ask clients for, e.g. 3 (frame) for rhythm mechanics
+    public static final int SAMPLING_MODE = Integer.getInteger("servlinker.samplingMode", Capabilities.SAMPLING_CLIENT_CHOICE);
+    public static final int FRAME_RATE = Integer.getInteger("servlinker.frameRate", 0);
+    // The same offer for clients on the string handshake
+    public static final String OFFERED_FEATURES = "binary,batch,dictionary,budget=" + MAX_EVENTS_PER_SECOND + "/" + MAX_EVENTS_PER_TICK;
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final Map<UUID, InputSession> sessions = new ConcurrentHashMap<>();
+    private final List<InputListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<InputEvent> batch = new ArrayList<>(); // server thread only
+    private final List<InputEvent> batchView = Collections.unmodifiableList(batch); // what listeners get
+    private volatile ActionsS2CPacket actions = new ActionsS2CPacket(List.of(), List.of());
+    private volatile SendPolicyS2CPacket sendPolicy; // null leaves clients on their default, every event per tick
+
+    private final LongAdder receivedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();   // queue was full
+    private final LongAdder queueOverflows = new LongAdder();  // packets that hit a full queue
+    private final LongAdder malformedPackets = new LongAdder();
+    private final LongAdder unknownSenders = new LongAdder();  // input before JOIN or after DISCONNECT
+    private long dispatchedEvents = 0;
+    private long dispatchedBatches = 0;
+    private long lastTickNanos = 0;
+    private final LatencyHistograms latency = new LatencyHistograms(); // all players, server thread only
+
+    public void register() {
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            ServerPlayerEntity player = handler.player;
+            sessions.put(player.getUuid(), new InputSession(player, QUEUE_CAPACITY));
+            if (ServerPlayNetworking.canSend(player, HelloS2CPacket.ID)) {
+                sender.sendPacket(new HelloS2CPacket(Capabilities.PROTOCOL_VERSION, OFFERED_CAPABILITIES));
+            } else if (ServerPlayNetworking.canSend(player, SyncS2CPacket.ID)) {
+                sender.sendPacket(new SyncS2CPacket(OFFERED_FEATURES));
+            }
+        });
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            InputSession session = sessions.remove(handler.player.getUuid());
+            if (session != null) {
+                // Whoever still holds this state must not see keys held forever
+                PlayerInputState state = session.getInputState();
+                server.execute(state::reset);
+            }
+        });
+        ServerTickEvents.END_SERVER_TICK.register(this::tick);
+    }
+
+    /**
+     * Declares a named action players can bind to a key of their choice, and returns the id its ACTION events
+     * carry. Declare actions during initialization: clients receive them once, at the end of the handshake.
+     */
+    public synchronized int declareAction(String name, int defaultKeyCode) {
+        int existing = actions.names().indexOf(name);
+        if (existing >= 0) {
+            return existing;
+        }
+        if (actions.names().size() >= ActionsS2CPacket.MAX_ACTIONS) {
+            throw new IllegalStateException("Cannot declare more than " + ActionsS2CPacket.MAX_ACTIONS + " actions: " + name);
+        }
+        List<String> names = new ArrayList<>(actions.names());
+        List<Integer> defaultKeys = new ArrayList<>(actions.defaultKeys());
+        names.add(name);
+        defaultKeys.add(defaultKeyCode);
+        actions = new ActionsS2CPacket(List.copyOf(names), List.copyOf(defaultKeys));
+        return names.size() - 1;
+    }
+
+    /**
+     * Sets how urgently clients send each class of event, see {@link SendPolicyS2CPacket}. Sent to every connected
+     * client that negotiated {@link Capabilities#LANES}, and to later ones at the end of their handshake.
+     */
+    public void setSendPolicy(SendPolicyS2CPacket policy) {
+        sendPolicy = policy;
+        for (InputSession session : sessions.values()) {
+            if (session.hasCapability(Capabilities.LANES)) {
+                send(session, policy);
+            }
+        }
+    }
+
+    /** Name of a declared action, or null for an unknown id. */
+    public String actionName(int actionId) {
+        List<String> names = actions.names();
+        return actionId >= 0 && actionId < names.size() ? names.get(actionId) : null;
+    }
+
+    public void addListener(InputListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(InputListener listener) {
+        listeners.remove(listener);
+    }
+
+    public InputSession getSession(ServerPlayerEntity player) {
+        return sessions.get(player.getUuid());
+    }
+
+    /** What the player is holding, or {@link PlayerInputState#NONE} without a session. Server thread only. */
+    public PlayerInputState getInputState(ServerPlayerEntity player) {
+        InputSession session = sessions.get(player.getUuid());
+        return session != null ? session.getInputState() : PlayerInputState.NONE;
+    }
+
+    /**
+     * Opens a session with no connection behind it, fed through {@link #receive(InputSession, CustomPayload)}
+     * by the load generator. Server payloads for it, starting with the same {@link SyncS2CPacket} a player on the
+     * string handshake gets, go to {@code outbound}. Its batches go to listeners as {@code dispatchAs}, or to none
+     * if that is null, and every event's capture-to-dispatch time is recorded into {@code latency}.
+     */
+    public InputSession openSimulatedSession(UUID id, ServerPlayerEntity dispatchAs, NanoHistogram latency,
+                                             Consumer<CustomPayload> outbound) {
+        InputSession session = new InputSession(dispatchAs, QUEUE_CAPACITY, latency, outbound);
+        sessions.put(id, session);
+        send(session, new SyncS2CPacket(OFFERED_FEATURES));
+        return session;
+    }
+
+    public void closeSimulatedSession(UUID id) {
+        sessions.computeIfPresent(id, (key, session) -> session.isSimulated() ? null : session);
+    }
+
+    /**
+     * Called from the network thread for every custom payload of a play connection.
+     * Returns whether the payload belonged to ServLinker and was consumed.
+     */
+    public boolean receive(ServerPlayerEntity player, CustomPayload payload) {
+        return receive(sessions.get(player.getUuid()), payload);
+    }
+
+    /**
+     * Handles a payload for {@code session}, which is null if its sender has none. Payloads and events the
+     * session's negotiated capabilities do not allow are dropped and counted as malformed.
+     */
+    public boolean receive(InputSession session, CustomPayload payload) {
+        if (payload instanceof InputBatchC2SPacket packet) {
+            if (packet == InputBatchC2SPacket.MALFORMED) {
+                malformedPackets.increment();
+            } else if (known(session) && permitted(session, Capabilities.BATCH)) {
+                boolean overflowed = false;
+                boolean rejected = false;
+                for (InputEvent event : packet.events()) {
+                    if (!session.hasCapability(requiredCapability(event))) {
+                        rejected = true;
+                    } else {
+                        overflowed |= !enqueue(session, event);
+                    }
+                }
+                if (overflowed) queueOverflows.increment();
+                if (rejected) malformedPackets.increment();
+            }
+        } else if (payload instanceof InputEventC2SPacket packet) {
+            if (known(session) && permitted(session, Capabilities.BINARY)
+                    && permitted(session, requiredCapability(packet.event()))) {
+                enqueueSingle(session, packet.event());
+            }
+        } else if (payload instanceof KeyPressC2SPacket packet) {
+            InputEvent event = LegacyInputParser.parse(packet.key(), System.nanoTime());
+            if (event == null) {
+                malformedPackets.increment();
+            } else {
+                enqueueSingle(session, event);
+            }
+        } else if (payload instanceof KeyInputToggleC2SPacket packet) {
+            enqueueSingle(session, InputEvent.toggle("on".equals(packet.key()), System.nanoTime()));
+        } else if (payload instanceof HelloC2SPacket packet) {
+            if (known(session)) {
+                ConfigS2CPacket config = negotiate(packet);
+                session.acknowledge(config.protocolVersion(), config.capabilities());
+                session.setCoalesceWindowNanos(Math.max(0, packet.coalesceWindowMillis()) * 1_000_000L);
+                send(session, config);
+                ActionsS2CPacket declared = actions;
+                if (Capabilities.has(config.capabilities(), Capabilities.ACTIONS) && !declared.names().isEmpty()) {
+                    send(session, declared);
+                }
+                SendPolicyS2CPacket policy = sendPolicy;
+                if (Capabilities.has(config.capabilities(), Capabilities.LANES) && policy != null) {
+                    send(session, policy);
+                }
+            }
+        } else if (payload instanceof AckC2SPacket packet) {
+            if (known(session)) {
+                // "ack|binary|batch|window=5" -> {ack, binary, batch, window=5}
+                Set<String> features = Set.copyOf(Arrays.asList(packet.key().split("\\|")));
+                session.acknowledge(0, legacyCapabilities(features));
+                session.setCoalesceWindowNanos(parseWindowNanos(features));
+            }
+        } else if (payload instanceof LatencyStampC2SPacket packet) {
+            // Stamped here rather than on the tick, the wait for the tick is what it measures
+            if (known(session) && permitted(session, Capabilities.LATENCY)) {
+                session.pendingStamp.set(new InputSession.ReceivedStamp(packet, System.nanoTime()));
+            }
+        } else if (payload instanceof KeyDictionaryC2SPacket packet) {
+            if (known(session) && permitted(session, Capabilities.DICTIONARY)) {
+                session.setKeyNames(toKeyNameTable(packet));
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private boolean known(InputSession session) {
+        if (session == null) {
+            unknownSenders.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Simulated sessions get server payloads through their own sink, players over their connection
+    private static void send(InputSession session, CustomPayload payload) {
+        if (session.isSimulated()) {
+            session.outbound.accept(payload);
+        } else if (session.getPlayer() != null) {
+            ServerPlayNetworking.send(session.getPlayer(), payload);
+        }
+    }
+
+    // Whether the session negotiated the flag; a payload sent without it counts as malformed
+    private boolean permitted(InputSession session, int flag) {
+        if (session.hasCapability(flag)) {
+            return true;
+        }
+        malformedPackets.increment();
+        return false;
+    }
+
+    // The flag an event needs in the negotiated set, 0 for kinds every client may send
+    private static int requiredCapability(InputEvent event) {
+        if (event.action() == InputEvent.Action.TAP) {
+            return Capabilities.TAP;
+        }
+        return switch (event.kind()) {
+            case MOTION, SCROLL -> Capabilities.MOTION;
+            case STATE -> Capabilities.STATE;
+            case ACTION -> Capabilities.ACTIONS;
+            default -> 0;
+        };
+    }
+
+    private void enqueueSingle(InputSession session, InputEvent event) {
+        if (known(session) && !enqueue(session, event)) {
+            queueOverflows.increment();
+        }
+    }
+
+    private boolean enqueue(InputSession session, InputEvent event) {
+        receivedEvents.increment();
+        if (session.queue.offer(event)) {
+            return true;
+        }
+        droppedEvents.increment();
+        return false;
+    }
+
+    /** Picks the final set: flags both sides support in the lower protocol version, and the sampling mode if the client can run it. */
+    static ConfigS2CPacket negotiate(HelloC2SPacket hello) {
+        int version = Math.min(Capabilities.PROTOCOL_VERSION, hello.protocolVersion());
+        int capabilities = Capabilities.normalize(OFFERED_CAPABILITIES & hello.capabilities() & Capabilities.supportedIn(version));
+        int sampling = SAMPLING_MODE > 0 && SAMPLING_MODE < Integer.SIZE && (hello.samplingModes() & (1 << SAMPLING_MODE)) != 0
+                ? SAMPLING_MODE : Capabilities.SAMPLING_CLIENT_CHOICE;
+        return new ConfigS2CPacket(version, capabilities, MAX_EVENTS_PER_SECOND, MAX_EVENTS_PER_TICK, sampling, Math.max(0, FRAME_RATE));
+    }
+
+    private static int legacyCapabilities(Set<String> features) {
+        int capabilities = 0;
+        if (features.contains("binary")) capabilities |= Capabilities.BINARY;
+        if (features.contains("batch")) capabilities |= Capabilities.BATCH;
+        if (features.contains("dictionary")) capabilities |= Capabilities.DICTIONARY;
+        if (features.contains("tap")) capabilities |= Capabilities.TAP;
+        return Capabilities.normalize(capabilities);
+    }
+
+    private static long parseWindowNanos(Set<String> features) {
+        for (String feature : features) {
+            if (feature.startsWith("window=")) {
+                try {
+                    return Math.max(0L, Long.parseLong(feature.substring("window=".length()))) * 1_000_000L;
+                } catch (NumberFormatException e) {
+                    return 0L;
+                }
+            }
+        }
+        return 0L;
+    }
+
+    private String[] toKeyNameTable(KeyDictionaryC2SPacket packet) {
+        String[] names = new String[InputSession.MAX_KEY_CODE + 1];
+        int count = Math.min(packet.keyCodes().size(), packet.keyNames().size());
+        for (int i = 0; i < count; i++) {
+            int keyCode = packet.keyCodes().get(i);
+            if (keyCode >= 0 && keyCode < names.length) {
+                names[keyCode] = packet.keyNames().get(i);
+            }
+        }
+        return names;
+    }
+
+    private void tick(MinecraftServer server) {
+        long start = System.nanoTime();
+        for (InputSession session : sessions.values()) {
+            // Taken before draining: a stamp follows its input packet, so that input is queued by now
+            InputSession.ReceivedStamp stamp = session.pendingStamp.getAndSet(null);
+            InputEvent event;
+            while ((event = session.queue.poll()) != null) {
+                batch.add(event);
+            }
+            // Also with no events, to end the previous "pressed this tick"
+            session.getInputState().apply(batch);
+            long dispatchNanos = stamp != null ? System.nanoTime() : 0L;
+            if (!batch.isEmpty()) {
+                dispatch(session, start);
+            }
+            if (stamp != null) {
+                echo(session, stamp, dispatchNanos);
+            }
+        }
+        lastTickNanos = System.nanoTime() - start;
+    }
+
+    private void dispatch(InputSession session, long tickStartNanos) {
+        if (session.latency != null) {
+            for (InputEvent queued : batch) {
+                session.latency.record(tickStartNanos - queued.timestampNanos());
+            }
+        }
+        if (session.getPlayer() != null) {
+            for (InputListener listener : listeners) {
+                try {
+                    listener.onInput(session.getPlayer(), batchView);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Input listener {} failed", listener, e);
+                }
+            }
+        }
+        dispatchedEvents += batch.size();
+        dispatchedBatches++;
+        batch.clear();
+    }
+
+    // After the session's listeners ran; dispatchNanos is when they started
+    private void echo(InputSession session, InputSession.ReceivedStamp received, long dispatchNanos) {
+        LatencyStampC2SPacket stamp = received.stamp();
+        long receiveToDispatch = dispatchNanos - received.receivedNanos();
+        latency.record(LatencyHistograms.Stage.CAPTURE_TO_SEND, stamp.captureToSendMicros() * 1_000L);
+        if (stamp.sendToReceiveMicros() > 0) {
+            latency.record(LatencyHistograms.Stage.SEND_TO_RECEIVE, stamp.sendToReceiveMicros() * 1_000L);
+        }
+        latency.record(LatencyHistograms.Stage.RECEIVE_TO_DISPATCH, receiveToDispatch);
+        // Also covers the listeners, so it is taken last; the client subtracts it from the round trip
+        long held = System.nanoTime() - received.receivedNanos();
+        send(session, new LatencyEchoS2CPacket(stamp.sendNanos(),
+                (int) Math.min(Integer.MAX_VALUE, receiveToDispatch / 1_000L), (int) Math.min(Integer.MAX_VALUE, held / 1_000L)));
+    }
+
+    /** Latency reported by and measured for every player's probes. Server thread only. */
+    public LatencyHistograms getLatency() {
+        return latency;
+    }
+
+    public long getReceivedEvents() {
+        return receivedEvents.sum();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    public long getQueueOverflows() {
+        return queueOverflows.sum();
+    }
+
+    public long getMalformedPackets() {
+        return malformedPackets.sum();
+    }
+
+    public long getUnknownSenders() {
+        return unknownSenders.sum();
+    }
+
+    /** Server thread only. */
+    public long getDispatchedEvents() {
+        return dispatchedEvents;
+    }
+
+    /** Server thread only. */
+    public long getDispatchedBatches() {
+        return dispatchedBatches;
+    }
+
+    /** Time the last server tick spent draining queues and running listeners. Server thread only. */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+}
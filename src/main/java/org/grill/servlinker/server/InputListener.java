@@ -0,0 +1,16 @@
+package org.grill.servlinker.server;
+
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.grill.servlinker.networking.InputEvent;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface InputListener {
+    /**
+     * Called on the server thread once per tick for every player that sent input, with that
+     * player's events in arrival order. The list is shared by all listeners, so it is read-only, and it is
+     * reused after the call returns; {@link InputOrdering#modifiersFirst} gives a reordered copy.
+     */
+    void onInput(ServerPlayerEntity player, List<InputEvent> events);
+}
@@ -0,0 +1,53 @@
+package org.grill.servlinker.server;
+
+import org.grill.servlinker.networking.InputEvent;
+
+import java.util.List;
+
+/**
+ * Optional reordering for listeners. Clients send events in true capture order; this groups events whose
+ * timestamps lie within the client's coalescing window and moves modifier keys to the front of each group,
+ * which is what the old fixed client-side modifier delay used to do.
+ */
+public final class InputOrdering {
+    private static final int FIRST_MODIFIER = 340; // GLFW_KEY_LEFT_SHIFT
+    private static final int LAST_MODIFIER = 347;  // GLFW_KEY_RIGHT_SUPER
+
+    private InputOrdering() {}
+
+    public static boolean isModifierKey(int keyCode) {
+        return keyCode >= FIRST_MODIFIER && keyCode <= LAST_MODIFIER;
+    }
+
+    /**
+     * Replaces the contents of {@code out} with {@code events} reordered; a window of 0 copies them as they are.
+     * The listener's own list is shared with every other listener and cannot be reordered, so pass a list the
+     * listener keeps and reuses.
+     */
+    public static void modifiersFirst(List<InputEvent> events, long windowNanos, List<InputEvent> out) {
+        out.clear();
+        out.addAll(events);
+        if (windowNanos <= 0) return;
+        int groupStart = 0;
+        for (int i = 1; i <= out.size(); i++) {
+            if (i == out.size() || out.get(i).timestampNanos() - out.get(groupStart).timestampNanos() > windowNanos) {
+                moveModifiersForward(out, groupStart, i);
+                groupStart = i;
+            }
+        }
+    }
+
+    // Stable: modifiers keep their relative order, as do the other events
+    private static void moveModifiersForward(List<InputEvent> events, int from, int to) {
+        int insert = from;
+        for (int i = from; i < to; i++) {
+            InputEvent event = events.get(i);
+            if (event.kind() == InputEvent.Kind.KEY && isModifierKey(event.code())) {
+                for (int j = i; j > insert; j--) {
+                    events.set(j, events.get(j - 1));
+                }
+                events.set(insert++, event);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.grill.servlinker.server;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.grill.servlinker.networking.Capabilities;
+import org.grill.servlinker.networking.LatencyStampC2SPacket;
+import org.grill.servlinker.utils.NanoHistogram;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/** Per-player ingest state. Fields written from the network thread are volatile. */
+public class InputSession {
+    static final int MAX_KEY_CODE = 348; // GLFW_KEY_LAST, GLFW itself is not on the server classpath
+
+    @Getter private final ServerPlayerEntity player; // null for a simulated session without a dispatch target
+    final InputEventQueue queue;
+    final NanoHistogram latency; // capture-to-dispatch times, only kept for simulated sessions
+    final Consumer<CustomPayload> outbound; // server payloads for a simulated session
+    @Getter private final PlayerInputState inputState = new PlayerInputState(); // server thread only
+    // Latest probe not yet echoed, set on the network thread and taken by the next tick
+    final AtomicReference<ReceivedStamp> pendingStamp = new AtomicReference<>();
+    private volatile boolean acknowledged = false;
+    @Getter private volatile int protocolVersion = 0;  // 0 for clients on the string handshake
+    @Getter private volatile int capabilities = 0;     // negotiated Capabilities flags
+    private volatile String[] keyNames; // indexed by key code, from the client's key dictionary
+    // Events closer together than this were pressed "at once" by the player, see InputOrdering
+    @Getter @Setter(AccessLevel.PACKAGE) private volatile long coalesceWindowNanos = 0L;
+
+    InputSession(ServerPlayerEntity player, int queueCapacity) {
+        this(player, queueCapacity, null, null);
+    }
+
+    InputSession(ServerPlayerEntity player, int queueCapacity, NanoHistogram latency, Consumer<CustomPayload> outbound) {
+        this.player = player;
+        this.queue = new InputEventQueue(queueCapacity);
+        this.latency = latency;
+        this.outbound = outbound;
+    }
+
+    record ReceivedStamp(LatencyStampC2SPacket stamp, long receivedNanos) {}
+
+    /** Whether this session was opened by the load generator rather than a connection. */
+    public boolean isSimulated() {
+        return latency != null;
+    }
+
+    /** Whether the client completed either handshake. */
+    public boolean isAcknowledged() {
+        return acknowledged;
+    }
+
+    public boolean hasCapability(int flag) {
+        return Capabilities.has(capabilities, flag);
+    }
+
+    void acknowledge(int protocolVersion, int capabilities) {
+        this.protocolVersion = protocolVersion;
+        this.capabilities = capabilities;
+        this.acknowledged = true;
+    }
+
+    void setKeyNames(String[] keyNames) {
+        this.keyNames = keyNames;
+    }
+
+    /** Translation key the client reported for this key code, or null before its dictionary arrived. */
+    public String keyName(int keyCode) {
+        String[] names = keyNames;
+        return names != null && keyCode >= 0 && keyCode < names.length ? names[keyCode] : null;
+    }
+}
@@ -0,0 +1,52 @@
+package org.grill.servlinker.server;
+
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import org.grill.servlinker.Servlinker;
+import org.grill.servlinker.utils.LatencyHistograms;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * {@code /servlinker serverlatency [dump|reset]}: input latency from every player's probes, see
+ * {@link InputIngest#getLatency}. Named apart from the client's {@code /servlinker latency}, which the client
+ * would otherwise handle itself.
+ */
+public final class LatencyCommand {
+    private LatencyCommand() {}
+
+    public static void register() {
+        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> dispatcher.register(
+                CommandManager.literal("servlinker")
+                        .then(CommandManager.literal("serverlatency").requires(source -> source.hasPermissionLevel(2))
+                                .executes(context -> {
+                                    for (String line : Servlinker.inputIngest.getLatency().lines()) {
+                                        context.getSource().sendFeedback(() -> Text.literal(line), false);
+                                    }
+                                    return 1;
+                                })
+                                .then(CommandManager.literal("dump").executes(context -> dump(context.getSource())))
+                                .then(CommandManager.literal("reset").executes(context -> {
+                                    Servlinker.inputIngest.getLatency().reset();
+                                    context.getSource().sendFeedback(() -> Text.literal("Latency histograms reset"), false);
+                                    return 1;
+                                })))
+        ));
+    }
+
+    private static int dump(ServerCommandSource source) {
+        LatencyHistograms latency = Servlinker.inputIngest.getLatency();
+        try {
+            Path path = latency.dump(FabricLoader.getInstance().getGameDir().resolve("servlinker").resolve("latency"), "server");
+            source.sendFeedback(() -> Text.literal("Latency histograms written to " + path), false);
+            return 1;
+        } catch (IOException e) {
+            source.sendError(Text.literal("Could not write latency histograms: " + e.getMessage()));
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.grill.servlinker.server;
+
+import org.grill.servlinker.networking.InputEvent;
+
+/** Parses the pipe-delimited {@code KeyPressC2SPacket} strings into {@link InputEvent}s. */
+final class LegacyInputParser {
+    private LegacyInputParser() {}
+
+    /** Returns null for malformed messages. The string form has no timestamps, so events are stamped on arrival. */
+    static InputEvent parse(String message, long receivedNanos) {
+        try {
+            String[] parts = message.split("\\|");
+            if (parts.length < 3) return null;
+            switch (parts[0]) {
+                case "KEY":
+                    return InputEvent.key(action(parts[1]), Integer.parseInt(parts[2]), receivedNanos);
+                case "SEQ": {
+                    String[] codes = parts[2].split("\\+");
+                    int[] keyCodes = new int[codes.length];
+                    for (int i = 0; i < codes.length; i++) {
+                        keyCodes[i] = Integer.parseInt(codes[i]);
+                    }
+                    return InputEvent.sequence(action(parts[1]), keyCodes, receivedNanos);
+                }
+                case "MOUSE_BUTTON": {
+                    int button = mouseButton(parts[1]);
+                    return button < 0 ? null : InputEvent.mouseButton(action(parts[2]), button, receivedNanos);
+                }
+                default:
+                    return null;
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Taps only exist in the binary format
+    private static InputEvent.Action action(String name) {
+        InputEvent.Action action = InputEvent.Action.valueOf(name);
+        if (action == InputEvent.Action.TAP) {
+            throw new IllegalArgumentException("TAP in string event");
+        }
+        return action;
+    }
+
+    private static int mouseButton(String name) {
+        return switch (name) {
+            case "LEFT" -> 0;
+            case "RIGHT" -> 1;
+            case "MIDDLE" -> 2;
+            case "BUTTON_4" -> 3;
+            case "BUTTON_5" -> 4;
+            default -> -1;
+        };
+    }
+}
@@ -0,0 +1,218 @@
+package org.grill.servlinker.server;
+
+import org.grill.servlinker.networking.ActionsS2CPacket;
+import org.grill.servlinker.networking.InputEvent;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What one player is holding right now, kept by {@link InputIngest} from the events it dispatches. Keys, mouse
+ * buttons and server-declared actions are bitsets with a press time per bit, so every query is a couple of array
+ * reads and never allocates.
+ * <p>
+ * Updated at the end of each server tick just before listeners run, so during a tick it reflects all input the
+ * server has dispatched. "Pressed this tick" means pressed in the latest dispatch, including taps that were
+ * already released. Capture being toggled either way clears everything, and a STATE event replaces it.
+ * Timestamps are {@link System#nanoTime()} values, see {@link InputEvent}. Server thread only; an instance
+ * belongs to one connection and is cleared for good when the player disconnects.
+ */
+public final class PlayerInputState {
+    /** Returned for players without a session; nothing is ever held. */
+    public static final PlayerInputState NONE = new PlayerInputState();
+
+    private static final int KEYS = InputSession.MAX_KEY_CODE + 1;
+    private static final int MOUSE_BUTTONS = 8; // GLFW_MOUSE_BUTTON_LAST + 1
+    private static final int ACTIONS = ActionsS2CPacket.MAX_ACTIONS;
+
+    private final long[] keysDown = new long[(KEYS + 63) >>> 6];
+    private final long[] keysPressed = new long[keysDown.length];
+    private final long[] keyPressNanos = new long[KEYS];
+    private final long[] heldScratch = new long[keysDown.length]; // STATE snapshots are built here
+    private int mouseDown;
+    private int mousePressed;
+    private final long[] mousePressNanos = new long[MOUSE_BUTTONS];
+    private int actionsDown;
+    private int actionsPressed;
+    private final long[] actionPressNanos = new long[ACTIONS];
+    private boolean anyPressed; // whether the pressed bits need clearing at the next dispatch
+
+    PlayerInputState() {}
+
+    public boolean isKeyDown(int keyCode) {
+        return keyCode >= 0 && keyCode < KEYS && (keysDown[keyCode >>> 6] & 1L << keyCode) != 0;
+    }
+
+    public boolean isMouseDown(int button) {
+        return button >= 0 && button < MOUSE_BUTTONS && (mouseDown & 1 << button) != 0;
+    }
+
+    public boolean isActionDown(int actionId) {
+        return actionId >= 0 && actionId < ACTIONS && (actionsDown & 1 << actionId) != 0;
+    }
+
+    public boolean keyPressedThisTick(int keyCode) {
+        return keyCode >= 0 && keyCode < KEYS && (keysPressed[keyCode >>> 6] & 1L << keyCode) != 0;
+    }
+
+    public boolean mousePressedThisTick(int button) {
+        return button >= 0 && button < MOUSE_BUTTONS && (mousePressed & 1 << button) != 0;
+    }
+
+    public boolean actionPressedThisTick(int actionId) {
+        return actionId >= 0 && actionId < ACTIONS && (actionsPressed & 1 << actionId) != 0;
+    }
+
+    /** How long the key has been held at {@code nowNanos}, 0 if it is up. */
+    public long keyHeldForNanos(int keyCode, long nowNanos) {
+        return isKeyDown(keyCode) ? Math.max(0L, nowNanos - keyPressNanos[keyCode]) : 0L;
+    }
+
+    public long mouseHeldForNanos(int button, long nowNanos) {
+        return isMouseDown(button) ? Math.max(0L, nowNanos - mousePressNanos[button]) : 0L;
+    }
+
+    public long actionHeldForNanos(int actionId, long nowNanos) {
+        return isActionDown(actionId) ? Math.max(0L, nowNanos - actionPressNanos[actionId]) : 0L;
+    }
+
+    public long keyHeldForNanos(int keyCode) {
+        return keyHeldForNanos(keyCode, System.nanoTime());
+    }
+
+    public long mouseHeldForNanos(int button) {
+        return mouseHeldForNanos(button, System.nanoTime());
+    }
+
+    public long actionHeldForNanos(int actionId) {
+        return actionHeldForNanos(actionId, System.nanoTime());
+    }
+
+    /** Held mouse buttons, one bit per button. */
+    public int getMouseButtons() {
+        return mouseDown;
+    }
+
+    /** Whether anything at all is held. */
+    public boolean isIdle() {
+        if (mouseDown != 0 || actionsDown != 0) return false;
+        for (long word : keysDown) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /** Applies one dispatch worth of events, starting a new "this tick". */
+    void apply(List<InputEvent> events) {
+        if (anyPressed) {
+            Arrays.fill(keysPressed, 0L);
+            mousePressed = 0;
+            actionsPressed = 0;
+            anyPressed = false;
+        }
+        for (int i = 0, n = events.size(); i < n; i++) {
+            InputEvent event = events.get(i);
+            switch (event.kind()) {
+                case KEY -> key(event.action(), event.code(), event.timestampNanos());
+                case MOUSE_BUTTON -> mouseButton(event.action(), event.code(), event.timestampNanos());
+                case ACTION -> action(event.action(), event.code(), event.timestampNanos());
+                case STATE -> reconcile(event);
+                case TOGGLE -> reset(); // nothing held before capture changed can be trusted
+                default -> {}
+            }
+        }
+    }
+
+    private void key(InputEvent.Action action, int keyCode, long timestamp) {
+        if (keyCode < 0 || keyCode >= KEYS) return;
+        int word = keyCode >>> 6;
+        long bit = 1L << keyCode;
+        switch (action) {
+            case PRESS -> {
+                if ((keysDown[word] & bit) == 0) {
+                    keysDown[word] |= bit;
+                    keyPressNanos[keyCode] = timestamp;
+                }
+                keysPressed[word] |= bit;
+                anyPressed = true;
+            }
+            case RELEASE -> keysDown[word] &= ~bit;
+            case TAP -> {
+                keysDown[word] &= ~bit; // taps start and end released
+                keysPressed[word] |= bit;
+                anyPressed = true;
+            }
+            default -> {}
+        }
+    }
+
+    private void mouseButton(InputEvent.Action action, int button, long timestamp) {
+        if (button < 0 || button >= MOUSE_BUTTONS) return;
+        int bit = 1 << button;
+        switch (action) {
+            case PRESS -> {
+                if ((mouseDown & bit) == 0) {
+                    mouseDown |= bit;
+                    mousePressNanos[button] = timestamp;
+                }
+                mousePressed |= bit;
+                anyPressed = true;
+            }
+            case RELEASE -> mouseDown &= ~bit;
+            case TAP -> {
+                mouseDown &= ~bit;
+                mousePressed |= bit;
+                anyPressed = true;
+            }
+            default -> {}
+        }
+    }
+
+    private void action(InputEvent.Action action, int actionId, long timestamp) {
+        if (actionId < 0 || actionId >= ACTIONS) return;
+        int bit = 1 << actionId;
+        if (action == InputEvent.Action.PRESS) {
+            if ((actionsDown & bit) == 0) {
+                actionsDown |= bit;
+                actionPressNanos[actionId] = timestamp;
+            }
+            actionsPressed |= bit;
+            anyPressed = true;
+        } else if (action == InputEvent.Action.RELEASE) {
+            actionsDown &= ~bit;
+        }
+    }
+
+    // Keys held on both sides of the snapshot keep their press time; the rest count from the snapshot
+    private void reconcile(InputEvent state) {
+        long timestamp = state.timestampNanos();
+        Arrays.fill(heldScratch, 0L);
+        int[] codes = state.codes();
+        for (int i = 0, n = state.heldKeyCount(); i < n; i++) {
+            int keyCode = codes[i];
+            if (keyCode < 0 || keyCode >= KEYS) continue;
+            long bit = 1L << keyCode;
+            if ((keysDown[keyCode >>> 6] & bit) == 0) {
+                keyPressNanos[keyCode] = timestamp;
+            }
+            heldScratch[keyCode >>> 6] |= bit;
+        }
+        System.arraycopy(heldScratch, 0, keysDown, 0, keysDown.length);
+        int buttons = state.heldMouseButtons() & (1 << MOUSE_BUTTONS) - 1;
+        for (int button = 0; button < MOUSE_BUTTONS; button++) {
+            if ((buttons & ~mouseDown & 1 << button) != 0) {
+                mousePressNanos[button] = timestamp;
+            }
+        }
+        mouseDown = buttons;
+        actionsDown = 0; // STATE releases every action
+    }
+
+    void reset() {
+        Arrays.fill(keysDown, 0L);
+        Arrays.fill(keysPressed, 0L);
+        mouseDown = mousePressed = 0;
+        actionsDown = actionsPressed = 0;
+        anyPressed = false;
+    }
+}
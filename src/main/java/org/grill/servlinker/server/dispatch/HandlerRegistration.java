@@ -0,0 +1,27 @@
+package org.grill.servlinker.server.dispatch;
+
+import lombok.Getter;
+import org.grill.servlinker.networking.InputEvent;
+
+/** A handler registered with {@link InputRouter}; {@link #cancel()} unregisters it. */
+public final class HandlerRegistration {
+    private final InputRouter router;
+    @Getter private final InputEvent.Kind kind;
+    final int code;     // key code, mouse button or action id, -1 to match every event of the kind
+    final int[] chord;  // key codes of a SEQUENCE in any order, null otherwise
+    @Getter private final HandlerThread thread;
+    final InputHandler handler;
+
+    HandlerRegistration(InputRouter router, InputEvent.Kind kind, int code, int[] chord, HandlerThread thread, InputHandler handler) {
+        this.router = router;
+        this.kind = kind;
+        this.code = code;
+        this.chord = chord;
+        this.thread = thread;
+        this.handler = handler;
+    }
+
+    public void cancel() {
+        router.remove(this);
+    }
+}
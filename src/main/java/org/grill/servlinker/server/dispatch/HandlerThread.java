@@ -0,0 +1,12 @@
+package org.grill.servlinker.server.dispatch;
+
+/** Where an {@link InputHandler} runs. */
+public enum HandlerThread {
+    /** Inline on the server thread during the tick that drained the event. */
+    SERVER,
+    /**
+     * On one of a fixed set of executor threads, chosen by player, so one player's events stay in order while a
+     * slow handler only delays the players sharing its stripe.
+     */
+    STRIPED
+}
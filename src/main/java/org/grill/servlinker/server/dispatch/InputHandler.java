@@ -0,0 +1,14 @@
+package org.grill.servlinker.server.dispatch;
+
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.grill.servlinker.networking.InputEvent;
+
+@FunctionalInterface
+public interface InputHandler {
+    /**
+     * Called for every event matching the handler's subscription, in the player's event order. Handlers on
+     * {@link HandlerThread#STRIPED} run off the server thread and must hand world changes back with
+     * {@code server.execute}.
+     */
+    void handle(ServerPlayerEntity player, InputEvent event);
+}
@@ -0,0 +1,291 @@
+package org.grill.servlinker.server.dispatch;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.grill.servlinker.Servlinker;
+import org.grill.servlinker.networking.ActionsS2CPacket;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.server.InputListener;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes each input event to the handlers subscribed to it, by key code, mouse button, action, chord or event kind.
+ * <p>
+ * Subscriptions are compiled into an immutable index of handler arrays: key codes, mouse buttons, actions and kinds
+ * index arrays directly, and chords go through an open-addressing table keyed by an order-independent hash of
+ * their codes. Dispatching an event therefore touches only the handlers that match it. Subscribing rebuilds
+ * the index and may happen on any thread.
+ * <p>
+ * {@link HandlerThread#STRIPED} handlers get one task per player per tick, queued on the stripe the player
+ * hashes to. A stripe whose queue is full drops the task and counts it in {@link #getRejectedBatches()}. Stripes
+ * are started with each server and shut down when it stops.
+ */
+public class InputRouter implements InputListener {
+    private static final Logger LOGGER = Servlinker.LOGGER;
+    private static final int KEY_CODES = 349;    // GLFW_KEY_LAST + 1
+    private static final int MOUSE_BUTTONS = 8;  // GLFW_MOUSE_BUTTON_LAST + 1
+    private static final int STRIPES = Integer.getInteger("servlinker.handlerThreads", Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int STRIPE_QUEUE_CAPACITY = 4096;
+
+    private final List<HandlerRegistration> registrations = new ArrayList<>();
+    private volatile Index index = new Index(List.of());
+    // One set per running server; the integrated server starts a new one for every world opened
+    private volatile ThreadPoolExecutor[] stripes;
+    private final LongAdder rejectedBatches = new LongAdder();
+
+    public void register() {
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> stripes = createStripes());
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+            ThreadPoolExecutor[] stopping = stripes;
+            stripes = null;
+            if (stopping != null) {
+                for (ThreadPoolExecutor stripe : stopping) {
+                    stripe.shutdownNow();
+                }
+            }
+        });
+    }
+
+    private ThreadPoolExecutor[] createStripes() {
+        ThreadPoolExecutor[] created = new ThreadPoolExecutor[STRIPES];
+        for (int i = 0; i < created.length; i++) {
+            String name = "servlinker-input-" + i;
+            created[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(STRIPE_QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }, (task, executor) -> rejectedBatches.increment());
+        }
+        return created;
+    }
+
+    /** Every KEY event for {@code keyCode}, including TAPs. */
+    public HandlerRegistration onKey(int keyCode, HandlerThread thread, InputHandler handler) {
+        checkRange(keyCode, KEY_CODES, "key code");
+        return add(new HandlerRegistration(this, InputEvent.Kind.KEY, keyCode, null, thread, handler));
+    }
+
+    public HandlerRegistration onMouseButton(int button, HandlerThread thread, InputHandler handler) {
+        checkRange(button, MOUSE_BUTTONS, "mouse button");
+        return add(new HandlerRegistration(this, InputEvent.Kind.MOUSE_BUTTON, button, null, thread, handler));
+    }
+
+    /** Presses and releases of an action from {@code InputIngest.declareAction}. */
+    public HandlerRegistration onAction(int actionId, HandlerThread thread, InputHandler handler) {
+        checkRange(actionId, ActionsS2CPacket.MAX_ACTIONS, "action id");
+        return add(new HandlerRegistration(this, InputEvent.Kind.ACTION, actionId, null, thread, handler));
+    }
+
+    /** Every SEQUENCE event whose key codes are exactly {@code keyCodes}, in whatever order they were pressed. */
+    public HandlerRegistration onChord(int[] keyCodes, HandlerThread thread, InputHandler handler) {
+        if (keyCodes.length == 0) {
+            throw new IllegalArgumentException("Empty chord");
+        }
+        return add(new HandlerRegistration(this, InputEvent.Kind.SEQUENCE, -1, keyCodes.clone(), thread, handler));
+    }
+
+    /** Every event of {@code kind}. */
+    public HandlerRegistration onKind(InputEvent.Kind kind, HandlerThread thread, InputHandler handler) {
+        return add(new HandlerRegistration(this, kind, -1, null, thread, handler));
+    }
+
+    public long getRejectedBatches() {
+        return rejectedBatches.sum();
+    }
+
+    private static void checkRange(int value, int limit, String what) {
+        if (value < 0 || value >= limit) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + value);
+        }
+    }
+
+    private synchronized HandlerRegistration add(HandlerRegistration registration) {
+        registrations.add(registration);
+        index = new Index(registrations);
+        return registration;
+    }
+
+    synchronized void remove(HandlerRegistration registration) {
+        if (registrations.remove(registration)) {
+            index = new Index(registrations);
+        }
+    }
+
+    @Override
+    public void onInput(ServerPlayerEntity player, List<InputEvent> events) {
+        Index current = index;
+        if (current.empty) return;
+        StripeBatch batch = null;
+        for (int i = 0, n = events.size(); i < n; i++) {
+            InputEvent event = events.get(i);
+            batch = dispatch(current.byKind[event.kind().ordinal()], player, event, batch);
+            switch (event.kind()) {
+                case KEY -> {
+                    if (event.code() >= 0 && event.code() < KEY_CODES) {
+                        batch = dispatch(current.byKey[event.code()], player, event, batch);
+                    }
+                }
+                case MOUSE_BUTTON -> {
+                    if (event.code() >= 0 && event.code() < MOUSE_BUTTONS) {
+                        batch = dispatch(current.byMouseButton[event.code()], player, event, batch);
+                    }
+                }
+                case ACTION -> {
+                    if (event.code() >= 0 && event.code() < ActionsS2CPacket.MAX_ACTIONS) {
+                        batch = dispatch(current.byAction[event.code()], player, event, batch);
+                    }
+                }
+                case SEQUENCE -> batch = dispatch(current.chord(event.codes()), player, event, batch);
+                default -> {}
+            }
+        }
+        if (batch != null) {
+            ThreadPoolExecutor[] running = stripes;
+            if (running == null) {
+                rejectedBatches.increment(); // no server running, e.g. input dispatched while it stops
+            } else {
+                running[Math.floorMod(player.getUuid().hashCode(), running.length)].execute(batch);
+            }
+        }
+    }
+
+    private static StripeBatch dispatch(HandlerRegistration[] matches, ServerPlayerEntity player, InputEvent event, StripeBatch batch) {
+        if (matches == null) return batch;
+        for (HandlerRegistration registration : matches) {
+            if (registration.getThread() == HandlerThread.SERVER) {
+                run(registration.handler, player, event);
+            } else {
+                if (batch == null) batch = new StripeBatch(player);
+                batch.add(registration.handler, event);
+            }
+        }
+        return batch;
+    }
+
+    private static void run(InputHandler handler, ServerPlayerEntity player, InputEvent event) {
+        try {
+            handler.handle(player, event);
+        } catch (RuntimeException e) {
+            LOGGER.error("Input handler {} failed", handler, e);
+        }
+    }
+
+    // Order-independent, so a chord matches its codes pressed in any order
+    private static int chordHash(int[] codes) {
+        int hash = codes.length;
+        for (int code : codes) {
+            int mixed = code * 0x9E3779B9;
+            hash += mixed ^ (mixed >>> 16);
+        }
+        return hash;
+    }
+
+    private static boolean sameCodes(int[] a, int[] b) {
+        if (a.length != b.length) return false;
+        for (int code : a) {
+            int countA = 0, countB = 0;
+            for (int other : a) if (other == code) countA++;
+            for (int other : b) if (other == code) countB++;
+            if (countA != countB) return false;
+        }
+        return true;
+    }
+
+    /** The handlers one player's events of one tick need off the server thread, in event order. */
+    private static final class StripeBatch implements Runnable {
+        private final ServerPlayerEntity player;
+        private InputHandler[] handlers = new InputHandler[8];
+        private InputEvent[] events = new InputEvent[8];
+        private int size;
+
+        StripeBatch(ServerPlayerEntity player) {
+            this.player = player;
+        }
+
+        void add(InputHandler handler, InputEvent event) {
+            if (size == handlers.length) {
+                handlers = Arrays.copyOf(handlers, size * 2);
+                events = Arrays.copyOf(events, size * 2);
+            }
+            handlers[size] = handler;
+            events[size++] = event;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < size; i++) {
+                InputRouter.run(handlers[i], player, events[i]);
+            }
+        }
+    }
+
+    /** Immutable snapshot of the registrations, null wherever nothing is subscribed. */
+    private static final class Index {
+        final boolean empty;
+        final HandlerRegistration[][] byKind = new HandlerRegistration[InputEvent.Kind.values().length][];
+        final HandlerRegistration[][] byKey = new HandlerRegistration[KEY_CODES][];
+        final HandlerRegistration[][] byMouseButton = new HandlerRegistration[MOUSE_BUTTONS][];
+        final HandlerRegistration[][] byAction = new HandlerRegistration[ActionsS2CPacket.MAX_ACTIONS][];
+        final int mask;
+        final int[][] chordCodes; // open addressing, slot -> codes of the chord stored there
+        final HandlerRegistration[][] chordHandlers;
+
+        Index(List<HandlerRegistration> registrations) {
+            empty = registrations.isEmpty();
+            int chords = 0;
+            for (HandlerRegistration registration : registrations) {
+                if (registration.chord != null) {
+                    chords++;
+                } else if (registration.code < 0) {
+                    byKind[registration.getKind().ordinal()] = append(byKind[registration.getKind().ordinal()], registration);
+                } else if (registration.getKind() == InputEvent.Kind.KEY) {
+                    byKey[registration.code] = append(byKey[registration.code], registration);
+                } else if (registration.getKind() == InputEvent.Kind.ACTION) {
+                    byAction[registration.code] = append(byAction[registration.code], registration);
+                } else {
+                    byMouseButton[registration.code] = append(byMouseButton[registration.code], registration);
+                }
+            }
+            int capacity = Integer.highestOneBit(Math.max(1, chords) * 2 - 1) << 1;
+            mask = capacity - 1;
+            chordCodes = new int[capacity][];
+            chordHandlers = new HandlerRegistration[capacity][];
+            for (HandlerRegistration registration : registrations) {
+                if (registration.chord != null) {
+                    int slot = slot(registration.chord);
+                    chordCodes[slot] = registration.chord;
+                    chordHandlers[slot] = append(chordHandlers[slot], registration);
+                }
+            }
+        }
+
+        /** Handlers for a SEQUENCE with these codes, or null. */
+        HandlerRegistration[] chord(int[] codes) {
+            return chordHandlers[slot(codes)];
+        }
+
+        // The slot holding these codes, or the empty slot where they would go
+        private int slot(int[] codes) {
+            int slot = chordHash(codes) & mask;
+            while (chordCodes[slot] != null && !sameCodes(chordCodes[slot], codes)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static HandlerRegistration[] append(HandlerRegistration[] array, HandlerRegistration registration) {
+            if (array == null) return new HandlerRegistration[]{registration};
+            HandlerRegistration[] grown = Arrays.copyOf(array, array.length + 1);
+            grown[array.length] = registration;
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.grill.servlinker.server.gesture;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * A timed input pattern declared by a game mode and recognized per player by {@link GestureEngine}.
+ * <p>
+ * Inputs are GLFW key codes, or {@link #mouseButton(int)} for mouse buttons. Times are measured between the
+ * events' own timestamps, so network jitter does not stretch or shrink them.
+ */
+public final class Gesture {
+    public enum Type { DOUBLE_TAP, HOLD, COMBO, RELEASE_AFTER }
+
+    public static final int MOUSE_BASE = 349; // GLFW_KEY_LAST + 1
+    static final int INPUTS = MOUSE_BASE + 8;
+
+    @Getter private final String name;
+    @Getter private final Type type;
+    final int[] inputs;
+    final long nanos;
+
+    private Gesture(String name, Type type, int[] inputs, long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Gesture " + name + " needs a positive time, got " + millis);
+        }
+        for (int input : inputs) {
+            if (input < 0 || input >= INPUTS) {
+                throw new IllegalArgumentException("Gesture " + name + " has an invalid input " + input);
+            }
+        }
+        this.name = name;
+        this.type = type;
+        this.inputs = inputs;
+        this.nanos = millis * 1_000_000L;
+    }
+
+    public static int mouseButton(int button) {
+        return MOUSE_BASE + button;
+    }
+
+    /** Two presses of {@code input} at most {@code withinMillis} apart. */
+    public static Gesture doubleTap(String name, int input, long withinMillis) {
+        return new Gesture(name, Type.DOUBLE_TAP, new int[]{input}, withinMillis);
+    }
+
+    /** {@code input} held for {@code forMillis}; fires once per press, while still held. */
+    public static Gesture hold(String name, int input, long forMillis) {
+        return new Gesture(name, Type.HOLD, new int[]{input}, forMillis);
+    }
+
+    /** {@code input} released after being held for at least {@code minMillis}, e.g. a charged attack. */
+    public static Gesture releaseAfter(String name, int input, long minMillis) {
+        return new Gesture(name, Type.RELEASE_AFTER, new int[]{input}, minMillis);
+    }
+
+    /**
+     * {@code inputs} pressed in order, the last at most {@code withinMillis} after the first. Presses of other
+     * inputs do not interrupt the combo; pressing one of its own inputs out of order does.
+     */
+    public static Gesture combo(String name, long withinMillis, int... inputs) {
+        if (inputs.length < 2) {
+            throw new IllegalArgumentException("Combo " + name + " needs at least two inputs");
+        }
+        return new Gesture(name, Type.COMBO, inputs.clone(), withinMillis);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + type + " " + Arrays.toString(inputs) + " " + nanos / 1_000_000L + " ms)";
+    }
+}
@@ -0,0 +1,285 @@
+package org.grill.servlinker.server.gesture;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.grill.servlinker.Servlinker;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.server.InputListener;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Recognizes declared {@link Gesture}s in every player's input stream, so game modes do not each keep their
+ * own timing state.
+ * <p>
+ * Gestures are compiled into flat arrays indexed by gesture, plus a table from input to the gestures that use
+ * it, so an event only touches the automata that can react to it. Each player's progress is two primitive
+ * arrays, a step and a start time per gesture. Holds are the only gestures that complete without an event;
+ * they are checked once per tick for players that hold one. Server thread only.
+ */
+public class GestureEngine implements InputListener {
+    private static final Logger LOGGER = Servlinker.LOGGER;
+
+    private final List<Gesture> gestures = new ArrayList<>();
+    private final List<GestureListener> gestureListeners = new ArrayList<>();
+    private Compiled compiled = new Compiled(List.of(), List.of());
+    private final Map<UUID, PlayerGestures> players = new HashMap<>();
+
+    public void register() {
+        // After InputIngest, so holds are checked against this tick's input
+        ServerTickEvents.END_SERVER_TICK.register(this::tick);
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            UUID id = handler.player.getUuid();
+            server.execute(() -> players.remove(id));
+        });
+    }
+
+    /** Adds a gesture. Changing the set resets every player's progress on all gestures. */
+    public void addGesture(Gesture gesture, GestureListener listener) {
+        gestures.add(gesture);
+        gestureListeners.add(listener);
+        compiled = new Compiled(gestures, gestureListeners);
+    }
+
+    public void removeGesture(Gesture gesture) {
+        int index = gestures.indexOf(gesture);
+        if (index >= 0) {
+            gestures.remove(index);
+            gestureListeners.remove(index);
+            compiled = new Compiled(gestures, gestureListeners);
+        }
+    }
+
+    @Override
+    public void onInput(ServerPlayerEntity player, List<InputEvent> events) {
+        Compiled c = compiled;
+        if (c.types.length == 0) return;
+        PlayerGestures state = state(player, c);
+        for (int i = 0, n = events.size(); i < n; i++) {
+            InputEvent event = events.get(i);
+            int input;
+            switch (event.kind()) {
+                case KEY -> input = event.code();
+                case MOUSE_BUTTON -> input = Gesture.MOUSE_BASE + event.code();
+                case TOGGLE -> {
+                    // Capture switched off or on: nothing held before can be trusted
+                    state.reset();
+                    continue;
+                }
+                case STATE -> {
+                    reconcile(state, c, event);
+                    continue;
+                }
+                default -> {
+                    continue;
+                }
+            }
+            if (input < 0 || input >= Gesture.INPUTS || c.byInput[input] == null) continue;
+            long timestamp = event.timestampNanos();
+            switch (event.action()) {
+                case PRESS -> press(state, c, input, timestamp);
+                case RELEASE -> release(state, c, input, timestamp);
+                case TAP -> {
+                    // No gesture looks further back than two press and release pairs
+                    for (int tap = Math.min(event.tapCount(), 2); tap > 0; tap--) {
+                        press(state, c, input, timestamp);
+                        release(state, c, input, timestamp);
+                    }
+                }
+                default -> {}
+            }
+        }
+    }
+
+    private PlayerGestures state(ServerPlayerEntity player, Compiled c) {
+        PlayerGestures state = players.get(player.getUuid());
+        if (state == null || state.compiled != c) {
+            state = new PlayerGestures(c);
+            players.put(player.getUuid(), state);
+        }
+        state.player = player; // respawning replaces the entity
+        return state;
+    }
+
+    private void press(PlayerGestures state, Compiled c, int input, long timestamp) {
+        int[] step = state.step;
+        long[] since = state.since;
+        for (int g : c.byInput[input]) {
+            switch (c.types[g]) {
+                case DOUBLE_TAP -> {
+                    if (step[g] == 1 && timestamp - since[g] <= c.nanos[g]) {
+                        step[g] = 0;
+                        fire(state.player, c, g, timestamp);
+                    } else {
+                        step[g] = 1;
+                        since[g] = timestamp;
+                    }
+                }
+                case HOLD, RELEASE_AFTER -> {
+                    if (step[g] == 0) { // key repeat sends no second PRESS, but a lost RELEASE might
+                        step[g] = 1;
+                        since[g] = timestamp;
+                        if (c.types[g] == Gesture.Type.HOLD) state.armedHolds++;
+                    }
+                }
+                case COMBO -> {
+                    int[] inputs = c.inputs[g];
+                    int s = step[g];
+                    if (s > 0 && timestamp - since[g] > c.nanos[g]) s = 0;
+                    if (input == inputs[s]) {
+                        if (s == 0) since[g] = timestamp;
+                        if (++s == inputs.length) {
+                            s = 0;
+                            fire(state.player, c, g, timestamp);
+                        }
+                    } else if (input == inputs[0]) {
+                        since[g] = timestamp;
+                        s = 1;
+                    } else {
+                        s = 0;
+                    }
+                    step[g] = s;
+                }
+            }
+        }
+    }
+
+    private void release(PlayerGestures state, Compiled c, int input, long timestamp) {
+        int[] step = state.step;
+        long[] since = state.since;
+        for (int g : c.byInput[input]) {
+            switch (c.types[g]) {
+                case HOLD -> {
+                    if (step[g] == 1) state.armedHolds--;
+                    step[g] = 0;
+                }
+                case RELEASE_AFTER -> {
+                    if (step[g] == 1 && timestamp - since[g] >= c.nanos[g]) {
+                        fire(state.player, c, g, timestamp);
+                    }
+                    step[g] = 0;
+                }
+                default -> {}
+            }
+        }
+    }
+
+    // Capture was suspended or resumed: gestures in progress are interrupted, held ones survive if still held
+    private static void reconcile(PlayerGestures state, Compiled c, InputEvent event) {
+        for (int g = 0; g < c.types.length; g++) {
+            if (state.step[g] == 0) continue;
+            boolean keep = (c.types[g] == Gesture.Type.HOLD || c.types[g] == Gesture.Type.RELEASE_AFTER)
+                    && isHeld(event, c.inputs[g][0]);
+            if (!keep) {
+                if (c.types[g] == Gesture.Type.HOLD && state.step[g] == 1) state.armedHolds--;
+                state.step[g] = 0;
+            }
+        }
+    }
+
+    private static boolean isHeld(InputEvent state, int input) {
+        if (input >= Gesture.MOUSE_BASE) {
+            return (state.heldMouseButtons() & (1 << (input - Gesture.MOUSE_BASE))) != 0;
+        }
+        int[] codes = state.codes();
+        for (int i = 0; i < state.heldKeyCount(); i++) {
+            if (codes[i] == input) return true;
+        }
+        return false;
+    }
+
+    private void tick(MinecraftServer server) {
+        Compiled c = compiled;
+        if (c.holds.length == 0) return;
+        long now = System.nanoTime();
+        for (PlayerGestures state : players.values()) {
+            if (state.armedHolds == 0 || state.compiled != c) continue;
+            for (int g : c.holds) {
+                if (state.step[g] == 1 && now - state.since[g] >= c.nanos[g]) {
+                    state.step[g] = 2; // fired, wait for the release
+                    state.armedHolds--;
+                    fire(state.player, c, g, state.since[g] + c.nanos[g]);
+                }
+            }
+        }
+    }
+
+    private static void fire(ServerPlayerEntity player, Compiled c, int g, long timestamp) {
+        try {
+            c.listeners[g].onGesture(player, c.gestures[g], timestamp);
+        } catch (RuntimeException e) {
+            LOGGER.error("Gesture listener for {} failed", c.gestures[g], e);
+        }
+    }
+
+    /** Immutable snapshot of the declared gestures in array form. */
+    private static final class Compiled {
+        final Gesture[] gestures;
+        final GestureListener[] listeners;
+        final Gesture.Type[] types;
+        final long[] nanos;
+        final int[][] inputs;
+        final int[][] byInput; // input -> gestures using it, null where none does
+        final int[] holds;
+
+        Compiled(List<Gesture> gestureList, List<GestureListener> listenerList) {
+            gestures = gestureList.toArray(new Gesture[0]);
+            listeners = listenerList.toArray(new GestureListener[0]);
+            int count = gestures.length;
+            types = new Gesture.Type[count];
+            nanos = new long[count];
+            inputs = new int[count][];
+            int[] uses = new int[Gesture.INPUTS];
+            int holdCount = 0;
+            for (int g = 0; g < count; g++) {
+                types[g] = gestures[g].getType();
+                nanos[g] = gestures[g].nanos;
+                inputs[g] = gestures[g].inputs;
+                for (int input : distinct(inputs[g])) uses[input]++;
+                if (types[g] == Gesture.Type.HOLD) holdCount++;
+            }
+            byInput = new int[Gesture.INPUTS][];
+            holds = new int[holdCount];
+            int[] filled = new int[Gesture.INPUTS];
+            for (int g = 0, h = 0; g < count; g++) {
+                for (int input : distinct(inputs[g])) {
+                    if (byInput[input] == null) byInput[input] = new int[uses[input]];
+                    byInput[input][filled[input]++] = g;
+                }
+                if (types[g] == Gesture.Type.HOLD) holds[h++] = g;
+            }
+        }
+
+        // A combo may repeat an input but must only be stepped once per event
+        private static int[] distinct(int[] values) {
+            return java.util.Arrays.stream(values).distinct().toArray();
+        }
+    }
+
+    /** One player's progress on every gesture of a {@link Compiled} set. */
+    private static final class PlayerGestures {
+        final Compiled compiled;
+        final int[] step;   // 0 idle; DOUBLE_TAP, HOLD, RELEASE_AFTER: 1 after the press; HOLD: 2 fired; COMBO: inputs matched
+        final long[] since; // timestamp of the first press of the gesture in progress
+        int armedHolds;
+        ServerPlayerEntity player;
+
+        PlayerGestures(Compiled compiled) {
+            this.compiled = compiled;
+            this.step = new int[compiled.types.length];
+            this.since = new long[compiled.types.length];
+        }
+
+        void reset() {
+            java.util.Arrays.fill(step, 0);
+            armedHolds = 0;
+        }
+    }
+}
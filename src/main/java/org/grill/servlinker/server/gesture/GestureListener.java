@@ -0,0 +1,12 @@
+package org.grill.servlinker.server.gesture;
+
+import net.minecraft.server.network.ServerPlayerEntity;
+
+@FunctionalInterface
+public interface GestureListener {
+    /**
+     * Called on the server thread when {@code player} completes {@code gesture}. {@code timestampNanos} is when it
+     * completed on the player's side, in the server's {@link System#nanoTime()} clock.
+     */
+    void onGesture(ServerPlayerEntity player, Gesture gesture, long timestampNanos);
+}
@@ -0,0 +1,197 @@
+package org.grill.servlinker.server.load;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.grill.servlinker.Servlinker;
+import org.grill.servlinker.server.InputIngest;
+import org.grill.servlinker.utils.NanoHistogram;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Measures how many ServLinker clients the server can ingest by simulating them on virtual threads.
+ * <p>
+ * A run first samples {@link #BASELINE_TICKS} server ticks without load, then starts the clients and samples
+ * every tick until the run's duration is over. The report covers ingest throughput, server tick time against
+ * the baseline, the time {@link InputIngest} itself spent per tick, and capture-to-dispatch latency. Ingest
+ * counters are server-wide, so real players online during a run are counted too.
+ * <p>
+ * Simulated clients have no connection (see {@link SimulatedClient}), so throughput is what ingest handles
+ * without Netty in front of it and latency is capture to dispatch with no network in between, not end to end.
+ * <p>
+ * All methods except {@link #isRunning} and {@link #recordPacket} run on the server thread. Only available with
+ * {@code -Dservlinker.loadTest=true}.
+ */
+public final class LoadGenerator {
+    private static final Logger LOGGER = Servlinker.LOGGER;
+    public static final boolean ENABLED = Boolean.getBoolean("servlinker.loadTest");
+    private static final int BASELINE_TICKS = 100;
+
+    public enum Format { LEGACY, BINARY, BATCHED }
+
+    private static LoadGenerator active;
+
+    private final MinecraftServer server;
+    private final InputIngest ingest;
+    private final int clients;
+    private final LoadProfile profile;
+    private final Format format;
+    private final int durationTicks;
+    private final ServerPlayerEntity dispatchAs;
+    private final Consumer<List<String>> reporter;
+
+    private final NanoHistogram baselineTicks = new NanoHistogram();
+    private final NanoHistogram loadTicks = new NanoHistogram();
+    private final NanoHistogram ingestTicks = new NanoHistogram();
+    private final NanoHistogram latency = new NanoHistogram(); // shared by all sessions, written on the server thread
+    private final LongAdder packets = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final List<UUID> sessionIds = new ArrayList<>();
+    private ExecutorService executor;
+    private volatile boolean running;
+    private long tickStartNanos;
+    private int phaseTicks;
+    private long startNanos;
+    private long receivedAtStart;
+    private long droppedAtStart;
+    private long malformedAtStart;
+
+    private LoadGenerator(MinecraftServer server, InputIngest ingest, int clients, LoadProfile profile, Format format,
+                          int durationTicks, ServerPlayerEntity dispatchAs, Consumer<List<String>> reporter) {
+        this.server = server;
+        this.ingest = ingest;
+        this.clients = clients;
+        this.profile = profile;
+        this.format = format;
+        this.durationTicks = durationTicks;
+        this.dispatchAs = dispatchAs;
+        this.reporter = reporter;
+    }
+
+    public static void register() {
+        ServerTickEvents.START_SERVER_TICK.register(server -> {
+            if (active != null) active.tickStartNanos = System.nanoTime();
+        });
+        // Registered after InputIngest, so its time for this tick is already known
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (active != null) active.onTickEnd();
+        });
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> stop());
+    }
+
+    /**
+     * Starts a run unless one is in progress. Listeners see the simulated input as {@code dispatchAs}, or not at
+     * all if that is null; {@code reporter} receives the report when the run ends.
+     */
+    public static boolean start(MinecraftServer server, int clients, LoadProfile profile, Format format, int seconds,
+                                ServerPlayerEntity dispatchAs, Consumer<List<String>> reporter) {
+        if (active != null) {
+            return false;
+        }
+        active = new LoadGenerator(server, Servlinker.inputIngest, clients, profile, format, seconds * 20, dispatchAs, reporter);
+        LOGGER.info("Load test: measuring baseline for {} ticks before starting {} clients", BASELINE_TICKS, clients);
+        return true;
+    }
+
+    /** Ends the run in progress early and reports what it measured so far. */
+    public static boolean stop() {
+        if (active == null) {
+            return false;
+        }
+        active.finish();
+        return true;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    void recordPacket(int size) {
+        packets.increment();
+        bytes.add(size);
+    }
+
+    private void onTickEnd() {
+        long nanos = System.nanoTime() - tickStartNanos;
+        phaseTicks++;
+        if (!running) {
+            baselineTicks.record(nanos);
+            if (phaseTicks >= BASELINE_TICKS) {
+                startClients();
+            }
+        } else {
+            loadTicks.record(nanos);
+            ingestTicks.record(ingest.getLastTickNanos());
+            if (phaseTicks >= durationTicks) {
+                finish();
+            }
+        }
+    }
+
+    private void startClients() {
+        receivedAtStart = ingest.getReceivedEvents();
+        droppedAtStart = ingest.getDroppedEvents();
+        malformedAtStart = ingest.getMalformedPackets();
+        startNanos = System.nanoTime();
+        phaseTicks = 0;
+        running = true;
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("servlinker-load-", 0).factory());
+        long seed = startNanos;
+        for (int i = 0; i < clients; i++) {
+            UUID id = UUID.randomUUID();
+            sessionIds.add(id);
+            executor.execute(new SimulatedClient(this, ingest, id, dispatchAs, latency, profile, format,
+                    server.getRegistryManager(), seed + i));
+        }
+        LOGGER.info("Load test: started {} {} clients sending {}", clients, profile, format);
+    }
+
+    private void finish() {
+        active = null;
+        List<String> report = running ? report() : List.of("Load test stopped during the baseline");
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Load test: simulated clients did not stop within a second");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sessionIds.forEach(ingest::closeSimulatedSession);
+        report.forEach(LOGGER::info);
+        reporter.accept(report);
+    }
+
+    private List<String> report() {
+        double seconds = Math.max(1L, System.nanoTime() - startNanos) / 1_000_000_000.0;
+        List<String> lines = new ArrayList<>(4);
+        lines.add(String.format(Locale.ROOT, "Load test: %d clients, %s, %s, %.1f s",
+                clients, profile, format, seconds));
+        lines.add(String.format(Locale.ROOT, "Ingest (no connection): %.0f events/s, %.0f packets/s, %.1f KiB/s, %d dropped, %d malformed",
+                (ingest.getReceivedEvents() - receivedAtStart) / seconds, packets.sum() / seconds,
+                bytes.sum() / 1024.0 / seconds, ingest.getDroppedEvents() - droppedAtStart,
+                ingest.getMalformedPackets() - malformedAtStart));
+        lines.add(String.format(Locale.ROOT, "Server tick: p50 %s, p99 %s (baseline p50 %s, p99 %s), ingest p50 %s, p99 %s",
+                NanoHistogram.format(loadTicks.percentile(0.50)), NanoHistogram.format(loadTicks.percentile(0.99)),
+                NanoHistogram.format(baselineTicks.percentile(0.50)), NanoHistogram.format(baselineTicks.percentile(0.99)),
+                NanoHistogram.format(ingestTicks.percentile(0.50)), NanoHistogram.format(ingestTicks.percentile(0.99))));
+        lines.add(String.format(Locale.ROOT, "Capture to dispatch (no network): p50 %s, p99 %s, p99.9 %s, max %s",
+                NanoHistogram.format(latency.percentile(0.50)), NanoHistogram.format(latency.percentile(0.99)),
+                NanoHistogram.format(latency.percentile(0.999)), NanoHistogram.format(latency.max())));
+        return lines;
+    }
+}
@@ -0,0 +1,22 @@
+package org.grill.servlinker.server.load;
+
+/**
+ * Traffic shape of one simulated client. Rates are averages; each client tick draws between half and one and
+ * a half times its share. The remainder of events that are not mouse buttons or chords are single key changes.
+ */
+public enum LoadProfile {
+    IDLE(0.5, 0.1, 0.0),
+    TYPING(8.0, 0.05, 0.02),
+    COMBAT(20.0, 0.4, 0.1),
+    SPAM(60.0, 0.7, 0.05);
+
+    final double eventsPerSecond;
+    final double mouseShare; // fraction of events that are mouse button changes
+    final double chordShare; // fraction that are modifier chords, sent as sequences
+
+    LoadProfile(double eventsPerSecond, double mouseShare, double chordShare) {
+        this.eventsPerSecond = eventsPerSecond;
+        this.mouseShare = mouseShare;
+        this.chordShare = chordShare;
+    }
+}
@@ -0,0 +1,73 @@
+package org.grill.servlinker.server.load;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+
+import java.util.Locale;
+
+/**
+ * {@code /servlinker loadtest start <clients> [profile] [format] [seconds] [dispatch]} and
+ * {@code /servlinker loadtest stop}. With {@code dispatch}, listeners receive the simulated input as the player
+ * who started the run.
+ */
+public final class LoadTestCommand {
+    private static final int DEFAULT_SECONDS = 60;
+
+    private LoadTestCommand() {}
+
+    public static void register() {
+        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> dispatcher.register(
+                // Other commands share the root, so the requirement goes on this literal
+                CommandManager.literal("servlinker")
+                        .then(CommandManager.literal("loadtest").requires(source -> source.hasPermissionLevel(4))
+                                .then(CommandManager.literal("start")
+                                        .then(CommandManager.argument("clients", IntegerArgumentType.integer(1, 100_000))
+                                                .executes(context -> start(context, false, false, false, false))
+                                                .then(CommandManager.argument("profile", StringArgumentType.word())
+                                                        .executes(context -> start(context, true, false, false, false))
+                                                        .then(CommandManager.argument("format", StringArgumentType.word())
+                                                                .executes(context -> start(context, true, true, false, false))
+                                                                .then(CommandManager.argument("seconds", IntegerArgumentType.integer(1, 3600))
+                                                                        .executes(context -> start(context, true, true, true, false))
+                                                                        .then(CommandManager.literal("dispatch")
+                                                                                .executes(context -> start(context, true, true, true, true))))))))
+                                .then(CommandManager.literal("stop").executes(context -> {
+                                    if (!LoadGenerator.stop()) {
+                                        context.getSource().sendError(Text.literal("No load test is running"));
+                                        return 0;
+                                    }
+                                    return 1;
+                                })))
+        ));
+    }
+
+    private static int start(CommandContext<ServerCommandSource> context, boolean hasProfile, boolean hasFormat,
+                             boolean hasSeconds, boolean dispatch) {
+        ServerCommandSource source = context.getSource();
+        LoadProfile profile;
+        LoadGenerator.Format format;
+        try {
+            profile = hasProfile ? LoadProfile.valueOf(StringArgumentType.getString(context, "profile").toUpperCase(Locale.ROOT)) : LoadProfile.TYPING;
+            format = hasFormat ? LoadGenerator.Format.valueOf(StringArgumentType.getString(context, "format").toUpperCase(Locale.ROOT)) : LoadGenerator.Format.BATCHED;
+        } catch (IllegalArgumentException e) {
+            source.sendError(Text.literal("Profiles: idle, typing, combat, spam; formats: legacy, binary, batched"));
+            return 0;
+        }
+        int clients = IntegerArgumentType.getInteger(context, "clients");
+        int seconds = hasSeconds ? IntegerArgumentType.getInteger(context, "seconds") : DEFAULT_SECONDS;
+        boolean started = LoadGenerator.start(source.getServer(), clients, profile, format, seconds,
+                dispatch ? source.getPlayer() : null,
+                report -> report.forEach(line -> source.sendFeedback(() -> Text.literal(line), false)));
+        if (!started) {
+            source.sendError(Text.literal("A load test is already running"));
+            return 0;
+        }
+        source.sendFeedback(() -> Text.literal("Load test: measuring a baseline, then starting " + clients + " clients"), false);
+        return 1;
+    }
+}
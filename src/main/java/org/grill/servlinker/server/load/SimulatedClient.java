@@ -0,0 +1,196 @@
+package org.grill.servlinker.server.load;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.network.packet.c2s.common.CustomPayloadC2SPacket;
+import net.minecraft.network.packet.s2c.common.CustomPayloadS2CPacket;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.grill.servlinker.networking.AckC2SPacket;
+import org.grill.servlinker.networking.InputBatchC2SPacket;
+import org.grill.servlinker.networking.InputEvent;
+import org.grill.servlinker.networking.InputEventC2SPacket;
+import org.grill.servlinker.networking.KeyInputToggleC2SPacket;
+import org.grill.servlinker.networking.KeyPressC2SPacket;
+import org.grill.servlinker.networking.SyncS2CPacket;
+import org.grill.servlinker.server.InputIngest;
+import org.grill.servlinker.server.InputSession;
+import org.grill.servlinker.utils.NanoHistogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One fake ServLinker client, run on its own virtual thread. Payloads in both directions are framed by the
+ * custom payload packet codecs a play connection decodes them with, Fabric's payload types included, and reach
+ * {@link InputIngest#receive(InputSession, CustomPayload)} the way {@code ServerCommonNetworkHandlerMixin} hands
+ * them over. The handshake starts from the {@link SyncS2CPacket} the server sends the session.
+ * <p>
+ * There is no connection: Netty, compression and the network itself are not part of what a client costs or of
+ * the latency it records.
+ */
+final class SimulatedClient implements Runnable {
+    private static final long TICK_NANOS = 50_000_000L;
+    private static final int[] KEYS = {87, 65, 83, 68, 32, 340, 69, 81, 70, 49, 50, 51}; // WASD, space, shift, E, Q, F, 1-3
+    private static final int CHORD_MODIFIER = 341; // left control
+    private static final String[] BUTTON_NAMES = {"LEFT", "RIGHT"};
+
+    private final LoadGenerator generator;
+    private final InputIngest ingest;
+    private final InputSession session;
+    private final Queue<CustomPayload> inbox = new ConcurrentLinkedQueue<>(); // decoded server payloads
+    private final DynamicRegistryManager registries;
+    private final LoadProfile profile;
+    private final LoadGenerator.Format format;
+    private final RegistryByteBuf buf;
+    private final SplittableRandom random;
+    private final boolean[] keysDown = new boolean[KEYS.length];
+    private final boolean[] buttonsDown = new boolean[BUTTON_NAMES.length];
+    private final List<InputEvent> tickEvents = new ArrayList<>();
+    private int chordKey = -1; // index into KEYS of the chord held with the modifier
+    private boolean binary;
+    private boolean batched;
+
+    // Opens the client's session, so the server's greeting is waiting in the inbox by the time it runs
+    SimulatedClient(LoadGenerator generator, InputIngest ingest, UUID id, ServerPlayerEntity dispatchAs, NanoHistogram latency,
+                    LoadProfile profile, LoadGenerator.Format format, DynamicRegistryManager registries, long seed) {
+        this.generator = generator;
+        this.ingest = ingest;
+        this.profile = profile;
+        this.format = format;
+        this.registries = registries;
+        this.buf = new RegistryByteBuf(Unpooled.buffer(256), registries);
+        this.random = new SplittableRandom(seed);
+        this.session = ingest.openSimulatedSession(id, dispatchAs, latency, this::deliver);
+    }
+
+    @Override
+    public void run() {
+        try {
+            // Spread clients over the tick so they do not all send at once
+            Thread.sleep(Duration.ofNanos(random.nextLong(TICK_NANOS)));
+            handshake();
+            send(new KeyInputToggleC2SPacket("on"));
+            double owed = random.nextDouble();
+            long next = System.nanoTime();
+            while (generator.isRunning()) {
+                owed += profile.eventsPerSecond * TICK_NANOS / 1_000_000_000.0 * (0.5 + random.nextDouble());
+                int count = (int) owed;
+                owed -= count;
+                produce(count, System.nanoTime());
+                inbox.clear(); // nothing the server sends after the handshake changes what this client does
+                next += TICK_NANOS;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(Duration.ofNanos(wait));
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped, the session is closed without a goodbye like a dropped connection
+        } finally {
+            buf.release();
+        }
+    }
+
+    // The server offers features on the string handshake; this client accepts those its format uses
+    private void handshake() {
+        Set<String> offered = Set.of();
+        CustomPayload payload;
+        while ((payload = inbox.poll()) != null) {
+            if (payload instanceof SyncS2CPacket sync) {
+                offered = Set.of(sync.key().split(","));
+            }
+        }
+        binary = format != LoadGenerator.Format.LEGACY && offered.contains("binary");
+        batched = binary && format == LoadGenerator.Format.BATCHED && offered.contains("batch");
+        send(new AckC2SPacket("ack" + (binary ? "|binary" : "") + (batched ? "|batch" : "")));
+    }
+
+    private void produce(int count, long nowNanos) {
+        for (int i = 0; i < count; i++) {
+            // Spread over the tick that just passed, like events captured between two client ticks
+            long timestamp = nowNanos - TICK_NANOS + (i + 1) * TICK_NANOS / (count + 1);
+            double roll = random.nextDouble();
+            if (roll < profile.chordShare) {
+                chord(timestamp);
+            } else if (roll < profile.chordShare + profile.mouseShare) {
+                int button = random.nextInt(buttonsDown.length);
+                buttonsDown[button] = !buttonsDown[button];
+                InputEvent.Action action = buttonsDown[button] ? InputEvent.Action.PRESS : InputEvent.Action.RELEASE;
+                emit(InputEvent.mouseButton(action, button, timestamp));
+            } else {
+                int key = random.nextInt(KEYS.length);
+                keysDown[key] = !keysDown[key];
+                InputEvent.Action action = keysDown[key] ? InputEvent.Action.PRESS : InputEvent.Action.RELEASE;
+                emit(InputEvent.key(action, KEYS[key], timestamp));
+            }
+        }
+        if (!tickEvents.isEmpty()) {
+            if (tickEvents.size() == 1) {
+                send(new InputEventC2SPacket(tickEvents.get(0)));
+            } else {
+                send(new InputBatchC2SPacket(tickEvents));
+            }
+            tickEvents.clear();
+        }
+    }
+
+    private void chord(long timestamp) {
+        InputEvent.Action action = chordKey < 0 ? InputEvent.Action.PRESS : InputEvent.Action.RELEASE;
+        if (chordKey < 0) {
+            chordKey = random.nextInt(KEYS.length);
+        }
+        emit(InputEvent.sequence(action, new int[]{CHORD_MODIFIER, KEYS[chordKey]}, timestamp));
+        if (action == InputEvent.Action.RELEASE) {
+            chordKey = -1;
+        }
+    }
+
+    private void emit(InputEvent event) {
+        if (batched) {
+            tickEvents.add(event);
+            if (tickEvents.size() == InputBatchC2SPacket.MAX_EVENTS) {
+                send(new InputBatchC2SPacket(tickEvents));
+                tickEvents.clear();
+            }
+        } else if (binary) {
+            send(new InputEventC2SPacket(event));
+        } else {
+            send(new KeyPressC2SPacket(legacy(event)));
+        }
+    }
+
+    // The pipe-delimited form older clients send
+    private static String legacy(InputEvent event) {
+        return switch (event.kind()) {
+            case MOUSE_BUTTON -> "MOUSE_BUTTON|" + BUTTON_NAMES[event.code()] + "|" + event.action();
+            case SEQUENCE -> "SEQ|" + event.action() + "|" + event.codes()[0] + "+" + event.codes()[1];
+            default -> "KEY|" + event.action() + "|" + event.code();
+        };
+    }
+
+    private void send(CustomPayload payload) {
+        buf.clear();
+        CustomPayloadC2SPacket.CODEC.encode(buf, new CustomPayloadC2SPacket(payload));
+        generator.recordPacket(buf.readableBytes());
+        ingest.receive(session, CustomPayloadC2SPacket.CODEC.decode(buf).payload());
+    }
+
+    // Called by the server from whichever thread sends; rare enough for a buffer of its own each time
+    private void deliver(CustomPayload payload) {
+        RegistryByteBuf frame = new RegistryByteBuf(Unpooled.buffer(64), registries);
+        try {
+            CustomPayloadS2CPacket.PLAY_CODEC.encode(frame, new CustomPayloadS2CPacket(payload));
+            inbox.add(CustomPayloadS2CPacket.PLAY_CODEC.decode(frame).payload());
+        } finally {
+            frame.release();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.grill.servlinker.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Input latency split into the stages an event passes through, one {@link NanoHistogram} each.
+ * Not thread-safe, like the histograms themselves.
+ */
+public final class LatencyHistograms {
+    private static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.99, 0.999};
+
+    public enum Stage {
+        /** Capture to the packet leaving the client: tick polling, sequence buffering and batching. */
+        CAPTURE_TO_SEND("capture to send"),
+        /** One-way network delay, half of the probe's round trip. */
+        SEND_TO_RECEIVE("send to receive"),
+        /** Arrival on the network thread to the server tick handing the input to listeners. */
+        RECEIVE_TO_DISPATCH("receive to dispatch");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final NanoHistogram[] histograms = new NanoHistogram[STAGES.length];
+
+    public LatencyHistograms() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new NanoHistogram();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public NanoHistogram get(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public void reset() {
+        for (NanoHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /** One line per stage: sample count, p50, p99, p99.9 and max. */
+    public List<String> lines() {
+        List<String> lines = new ArrayList<>(STAGES.length);
+        for (Stage stage : STAGES) {
+            NanoHistogram histogram = get(stage);
+            lines.add(String.format(Locale.ROOT, "%s: p50 %s, p99 %s, p99.9 %s, max %s (%d samples)",
+                    stage.label, NanoHistogram.format(histogram.percentile(0.50)), NanoHistogram.format(histogram.percentile(0.99)),
+                    NanoHistogram.format(histogram.percentile(0.999)), NanoHistogram.format(histogram.max()), histogram.count()));
+        }
+        return lines;
+    }
+
+    /**
+     * Writes every stage's percentiles in microseconds to a new timestamped file in {@code directory}, as
+     * {@code stage,samples,p50,p90,p99,p99.9,max} rows, and returns its path.
+     */
+    public Path dump(Path directory, String prefix) throws IOException {
+        List<String> rows = new ArrayList<>(STAGES.length + 1);
+        rows.add("stage,samples,p50_us,p90_us,p99_us,p999_us,max_us");
+        for (Stage stage : STAGES) {
+            NanoHistogram histogram = get(stage);
+            StringBuilder row = new StringBuilder(stage.name().toLowerCase(Locale.ROOT)).append(',').append(histogram.count());
+            for (double percentile : PERCENTILES) {
+                row.append(',').append(histogram.percentile(percentile) / 1_000L);
+            }
+            rows.add(row.append(',').append(histogram.max() / 1_000L).toString());
+        }
+        Files.createDirectories(directory);
+        Path path = directory.resolve(prefix + "-" + FILE_NAME.format(LocalDateTime.now()) + ".csv");
+        Files.write(path, rows);
+        return path;
+    }
+}
@@ -0,0 +1,80 @@
+package org.grill.servlinker.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Log-linear histogram of non-negative durations with four buckets per power of two, so percentiles are
+ * exact to within 25% without storing samples. Not thread-safe; each instance belongs to one thread.
+ */
+public final class NanoHistogram {
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 3) * SUB_BUCKETS;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count;
+    private long max;
+
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        buckets[bucket(value)]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    /** Upper bound of the bucket holding the given fraction of samples, 0 with no samples yet. */
+    public long percentile(double fraction) {
+        if (count == 0) return 0L;
+        long rank = Math.max(1L, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank) return Math.min(max, upperBound(bucket));
+        }
+        return max;
+    }
+
+    public void add(NanoHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            buckets[bucket] += other.buckets[bucket];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(buckets, 0L);
+        count = 0L;
+        max = 0L;
+    }
+
+    /** A duration for display, in ns, µs or ms depending on its size. */
+    public static String format(long nanos) {
+        if (nanos < 1_000) return nanos + " ns";
+        if (nanos < 1_000_000) return String.format(Locale.ROOT, "%.1f µs", nanos / 1_000.0);
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1_000_000.0);
+    }
+
+    // Values below SUB_BUCKETS get a bucket each, above that each power of two is split in SUB_BUCKETS
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - 2) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + 2;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 2)) - 1;
+    }
+}